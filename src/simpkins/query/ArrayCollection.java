@@ -2,8 +2,11 @@ package simpkins.query;
 
 import simpkins.query.iterator.ArrayIterator;
 
+import java.lang.reflect.Array;
 import java.util.AbstractCollection;
+import java.util.AbstractList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Supplier;
 
 /**
@@ -14,46 +17,83 @@ import java.util.function.Supplier;
 public class ArrayCollection<T> extends AbstractCollection<T> {
     private Supplier<ArrayIterator<T>> iteratorSupplier;
     private int size;
+    private Object array;
+    // the array, if it is one that Query can run the array kernels over.
+    private Object kernelArray = null;
 
     public ArrayCollection(T[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
     public ArrayCollection(boolean[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
     public ArrayCollection(byte[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
     public ArrayCollection(short[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
     public ArrayCollection(int[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
+        this.kernelArray = array;
     }
 
     public ArrayCollection(long[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
+        this.kernelArray = array;
     }
 
     public ArrayCollection(float[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
     public ArrayCollection(double[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
+        this.kernelArray = array;
     }
 
     public ArrayCollection(char[] array) {
-        this(() -> new ArrayIterator<T>(array), array.length);
+        this(() -> new ArrayIterator<T>(array), array);
     }
 
-    private ArrayCollection(Supplier<ArrayIterator<T>> iteratorSupplier, int size) {
+    private ArrayCollection(Supplier<ArrayIterator<T>> iteratorSupplier, Object array) {
         this.iteratorSupplier = iteratorSupplier;
-        this.size = size;
+        this.size = Array.getLength(array);
+        this.array = array;
+    }
+
+    // Returns the int[], long[] or double[] this wraps, or null if it wraps some other array.
+    Object getKernelArray() {
+        return kernelArray;
+    }
+
+    // Returns a read-only view of the array by index, so that a spliterator can split it evenly.  The common primitive
+    // arrays are read in a typed branch to avoid a reflective Array.get() per item.
+    @SuppressWarnings("unchecked")
+    List<T> asList() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                if (array instanceof Object[])
+                    return ((T[])array)[index];
+                if (array instanceof int[])
+                    return (T)(Integer)((int[])array)[index];
+                if (array instanceof long[])
+                    return (T)(Long)((long[])array)[index];
+                if (array instanceof double[])
+                    return (T)(Double)((double[])array)[index];
+                return (T)Array.get(array, index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
 
     @Override
@@ -0,0 +1,459 @@
+package simpkins.query;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+// Tight loops over int, long and double arrays for the aggregates and Comparison filters of Query and the primitive
+// lists.  Each loop is unrolled into four independent accumulators, which frees each step from waiting on the one
+// before and leaves the JIT free to vectorize it where the CPU allows.  Range tests are written without branches so
+// that the outcome of one comparison doesn't have to be predicted before the next.
+final class ArrayKernels {
+    private static final BigDecimal TWO_TO_THE_64 = new BigDecimal(BigInteger.ONE.shiftLeft(64));
+
+    private ArrayKernels() {
+    }
+
+    //
+    // Dispatch for Query, over an int[], long[] or double[] and an optional filter
+    //
+
+    static int count(Object array, Comparison<?> filter) {
+        if (array instanceof int[])
+            return filter == null ? ((int[])array).length : count((int[])array, ((int[])array).length, filter);
+        if (array instanceof long[])
+            return filter == null ? ((long[])array).length : count((long[])array, ((long[])array).length, filter);
+        return filter == null ? ((double[])array).length : count((double[])array, ((double[])array).length, filter);
+    }
+
+    // Returns the exact sum of an int[] or long[].
+    static BigDecimal sum(Object array, Comparison<?> filter) {
+        if (array instanceof int[]) {
+            int[] ints = filter == null ? (int[])array : filter((int[])array, ((int[])array).length, filter);
+            return BigDecimal.valueOf(sum(ints, ints.length));
+        }
+        long[] longs = filter == null ? (long[])array : filter((long[])array, ((long[])array).length, filter);
+        long[] sum = sum(longs, longs.length);
+        BigDecimal wrapped = BigDecimal.valueOf(sum[0]);
+        return sum[1] == 0 ? wrapped : wrapped.add(TWO_TO_THE_64.multiply(BigDecimal.valueOf(sum[1])));
+    }
+
+    // Returns the lowest or highest number in the array as an Integer, Long or Double, or null if there are none.
+    static Number extreme(Object array, Comparison<?> filter, boolean isMax) {
+        if (array instanceof int[]) {
+            int[] ints = filter == null ? (int[])array : filter((int[])array, ((int[])array).length, filter);
+            return ints.length == 0 ? null : isMax ? max(ints, ints.length) : min(ints, ints.length);
+        }
+        if (array instanceof long[]) {
+            long[] longs = filter == null ? (long[])array : filter((long[])array, ((long[])array).length, filter);
+            return longs.length == 0 ? null : isMax ? max(longs, longs.length) : min(longs, longs.length);
+        }
+        double[] doubles = filter == null ? (double[])array : filter((double[])array, ((double[])array).length, filter);
+        return doubles.length == 0 ? null : isMax ? max(doubles, doubles.length) : min(doubles, doubles.length);
+    }
+
+    //
+    // int[]
+    //
+
+    static long sum(int[] array, int length) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += array[i];
+            s1 += array[i + 1];
+            s2 += array[i + 2];
+            s3 += array[i + 3];
+        }
+        for (; i < length; i++)
+            s0 += array[i];
+        return s0 + s1 + s2 + s3;
+    }
+
+    // The length must be greater than zero.
+    static int min(int[] array, int length) {
+        int m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.min(m0, array[i]);
+            m1 = Math.min(m1, array[i + 1]);
+            m2 = Math.min(m2, array[i + 2]);
+            m3 = Math.min(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.min(m0, array[i]);
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    // The length must be greater than zero.
+    static int max(int[] array, int length) {
+        int m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.max(m0, array[i]);
+            m1 = Math.max(m1, array[i + 1]);
+            m2 = Math.max(m2, array[i + 2]);
+            m3 = Math.max(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.max(m0, array[i]);
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    static int count(int[] array, int length, Comparison<?> comparison) {
+        int count = 0;
+        int[] range = intRange(comparison);
+        if (range != null) {
+            // flipping the sign bit turns the signed range test into a single unsigned one.
+            int low = range[0];
+            int span = (range[1] - low) ^ Integer.MIN_VALUE;
+            int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            int i = 0;
+            for (; i + 3 < length; i += 4) {
+                c0 += ((array[i] - low) ^ Integer.MIN_VALUE) <= span ? 1 : 0;
+                c1 += ((array[i + 1] - low) ^ Integer.MIN_VALUE) <= span ? 1 : 0;
+                c2 += ((array[i + 2] - low) ^ Integer.MIN_VALUE) <= span ? 1 : 0;
+                c3 += ((array[i + 3] - low) ^ Integer.MIN_VALUE) <= span ? 1 : 0;
+            }
+            for (; i < length; i++)
+                c0 += ((array[i] - low) ^ Integer.MIN_VALUE) <= span ? 1 : 0;
+            count = c0 + c1 + c2 + c3;
+        }
+        return comparison.isNegated() ? length - count : count;
+    }
+
+    static int[] filter(int[] array, int length, Comparison<?> comparison) {
+        int[] range = intRange(comparison);
+        boolean isNegated = comparison.isNegated();
+        if (range == null)
+            return isNegated ? Arrays.copyOf(array, length) : new int[0];
+        int low = range[0];
+        int span = (range[1] - low) ^ Integer.MIN_VALUE;
+        int[] matches = new int[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            matches[count] = array[i];
+            count += (((array[i] - low) ^ Integer.MIN_VALUE) <= span) != isNegated ? 1 : 0;
+        }
+        return count == length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    // Returns the exact dot product of the first length items of two arrays.  An ArithmeticException is thrown if it
+    // overflows a long.
+    static long dot(int[] x, int[] y, int length) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        // the net count of times each sum wrapped past the top or bottom of the long range.
+        long w0 = 0, w1 = 0, w2 = 0, w3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            long p0 = (long)x[i] * y[i];
+            long p1 = (long)x[i + 1] * y[i + 1];
+            long p2 = (long)x[i + 2] * y[i + 2];
+            long p3 = (long)x[i + 3] * y[i + 3];
+            long t0 = s0 + p0, t1 = s1 + p1, t2 = s2 + p2, t3 = s3 + p3;
+            w0 += wrap(s0, p0, t0);
+            w1 += wrap(s1, p1, t1);
+            w2 += wrap(s2, p2, t2);
+            w3 += wrap(s3, p3, t3);
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        for (; i < length; i++) {
+            long p = (long)x[i] * y[i];
+            long t = s0 + p;
+            w0 += wrap(s0, p, t);
+            s0 = t;
+        }
+        return exact(s0, s1, s2, s3, w0 + w1 + w2 + w3);
+    }
+
+    //
+    // long[]
+    //
+
+    // Returns the sum wrapped to a long, followed by the net number of times it wrapped past the top of the long range
+    // less the times it wrapped past the bottom.  The sum is exact when that number is zero.
+    static long[] sum(long[] array, int length) {
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        long w0 = 0, w1 = 0, w2 = 0, w3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            long t0 = s0 + array[i], t1 = s1 + array[i + 1], t2 = s2 + array[i + 2], t3 = s3 + array[i + 3];
+            w0 += wrap(s0, array[i], t0);
+            w1 += wrap(s1, array[i + 1], t1);
+            w2 += wrap(s2, array[i + 2], t2);
+            w3 += wrap(s3, array[i + 3], t3);
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        for (; i < length; i++) {
+            long t = s0 + array[i];
+            w0 += wrap(s0, array[i], t);
+            s0 = t;
+        }
+        long s01 = s0 + s1, s23 = s2 + s3, sum = s01 + s23;
+        long wrapped = w0 + w1 + w2 + w3 + wrap(s0, s1, s01) + wrap(s2, s3, s23) + wrap(s01, s23, sum);
+        return new long[]{sum, wrapped};
+    }
+
+    // Returns the sum, or throws an ArithmeticException if it overflows a long.
+    static long sumExact(long[] array, int length) {
+        long[] sum = sum(array, length);
+        if (sum[1] != 0)
+            throw new ArithmeticException("long overflow");
+        return sum[0];
+    }
+
+    // The length must be greater than zero.
+    static long min(long[] array, int length) {
+        long m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.min(m0, array[i]);
+            m1 = Math.min(m1, array[i + 1]);
+            m2 = Math.min(m2, array[i + 2]);
+            m3 = Math.min(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.min(m0, array[i]);
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    // The length must be greater than zero.
+    static long max(long[] array, int length) {
+        long m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.max(m0, array[i]);
+            m1 = Math.max(m1, array[i + 1]);
+            m2 = Math.max(m2, array[i + 2]);
+            m3 = Math.max(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.max(m0, array[i]);
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    static int count(long[] array, int length, Comparison<?> comparison) {
+        if (!comparison.isIntegral())
+            return countAsDoubles(array, length, comparison);
+        int count = 0;
+        long low = comparison.getLow();
+        if (low <= comparison.getHigh()) {
+            long span = (comparison.getHigh() - low) ^ Long.MIN_VALUE;
+            int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+            int i = 0;
+            for (; i + 3 < length; i += 4) {
+                c0 += ((array[i] - low) ^ Long.MIN_VALUE) <= span ? 1 : 0;
+                c1 += ((array[i + 1] - low) ^ Long.MIN_VALUE) <= span ? 1 : 0;
+                c2 += ((array[i + 2] - low) ^ Long.MIN_VALUE) <= span ? 1 : 0;
+                c3 += ((array[i + 3] - low) ^ Long.MIN_VALUE) <= span ? 1 : 0;
+            }
+            for (; i < length; i++)
+                c0 += ((array[i] - low) ^ Long.MIN_VALUE) <= span ? 1 : 0;
+            count = c0 + c1 + c2 + c3;
+        }
+        return comparison.isNegated() ? length - count : count;
+    }
+
+    static long[] filter(long[] array, int length, Comparison<?> comparison) {
+        boolean isNegated = comparison.isNegated();
+        long[] matches = new long[length];
+        int count = 0;
+        if (comparison.isIntegral()) {
+            long low = comparison.getLow();
+            if (low > comparison.getHigh())
+                return isNegated ? Arrays.copyOf(array, length) : new long[0];
+            long span = (comparison.getHigh() - low) ^ Long.MIN_VALUE;
+            for (int i = 0; i < length; i++) {
+                matches[count] = array[i];
+                count += (((array[i] - low) ^ Long.MIN_VALUE) <= span) != isNegated ? 1 : 0;
+            }
+        }
+        else {
+            double low = comparison.getDoubleLow();
+            double high = comparison.getDoubleHigh();
+            for (int i = 0; i < length; i++) {
+                matches[count] = array[i];
+                count += ((double)array[i] >= low & (double)array[i] <= high) != isNegated ? 1 : 0;
+            }
+        }
+        return count == length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    private static int countAsDoubles(long[] array, int length, Comparison<?> comparison) {
+        double low = comparison.getDoubleLow();
+        double high = comparison.getDoubleHigh();
+        int c0 = 0, c1 = 0;
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            c0 += (double)array[i] >= low & (double)array[i] <= high ? 1 : 0;
+            c1 += (double)array[i + 1] >= low & (double)array[i + 1] <= high ? 1 : 0;
+        }
+        for (; i < length; i++)
+            c0 += (double)array[i] >= low & (double)array[i] <= high ? 1 : 0;
+        return comparison.isNegated() ? length - c0 - c1 : c0 + c1;
+    }
+
+    //
+    // double[]
+    //
+
+    // Returns the sum compensated against rounding error, with each of the four sums compensated separately by
+    // Neumaier's method as QueryStatistics does and then combined the same way.
+    static double sumCompensated(double[] array, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        double c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            double t0 = s0 + array[i], t1 = s1 + array[i + 1], t2 = s2 + array[i + 2], t3 = s3 + array[i + 3];
+            c0 += Math.abs(s0) >= Math.abs(array[i]) ? (s0 - t0) + array[i] : (array[i] - t0) + s0;
+            c1 += Math.abs(s1) >= Math.abs(array[i + 1]) ? (s1 - t1) + array[i + 1] : (array[i + 1] - t1) + s1;
+            c2 += Math.abs(s2) >= Math.abs(array[i + 2]) ? (s2 - t2) + array[i + 2] : (array[i + 2] - t2) + s2;
+            c3 += Math.abs(s3) >= Math.abs(array[i + 3]) ? (s3 - t3) + array[i + 3] : (array[i + 3] - t3) + s3;
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        for (; i < length; i++) {
+            double t0 = s0 + array[i];
+            c0 += Math.abs(s0) >= Math.abs(array[i]) ? (s0 - t0) + array[i] : (array[i] - t0) + s0;
+            s0 = t0;
+        }
+        double total = compensatedTotal(new double[]{s0, c0, s1, c1, s2, c2, s3, c3});
+        // the four sums are the plain running sums, which stay infinite where an infinite value or an overflow makes
+        // the compensation NaN.
+        double simpleSum = (s0 + s1) + (s2 + s3);
+        return Double.isNaN(total) && Double.isInfinite(simpleSum) ? simpleSum : total;
+    }
+
+    // Adds up the provided values with Neumaier's method.
+    private static double compensatedTotal(double[] values) {
+        double sum = 0;
+        double compensation = 0;
+        double simpleSum = 0;
+        for (double value : values) {
+            double total = sum + value;
+            compensation += Math.abs(sum) >= Math.abs(value) ? (sum - total) + value : (value - total) + sum;
+            sum = total;
+            simpleSum += value;
+        }
+        double total = sum + compensation;
+        return Double.isNaN(total) && Double.isInfinite(simpleSum) ? simpleSum : total;
+    }
+
+    // Returns the lowest double, or NaN if there is one, as Math.min() does.  The length must be greater than zero.
+    static double min(double[] array, int length) {
+        double m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.min(m0, array[i]);
+            m1 = Math.min(m1, array[i + 1]);
+            m2 = Math.min(m2, array[i + 2]);
+            m3 = Math.min(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.min(m0, array[i]);
+        return Math.min(Math.min(m0, m1), Math.min(m2, m3));
+    }
+
+    // Returns the highest double, or NaN if there is one, as Math.max() does.  The length must be greater than zero.
+    static double max(double[] array, int length) {
+        double m0 = array[0], m1 = m0, m2 = m0, m3 = m0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            m0 = Math.max(m0, array[i]);
+            m1 = Math.max(m1, array[i + 1]);
+            m2 = Math.max(m2, array[i + 2]);
+            m3 = Math.max(m3, array[i + 3]);
+        }
+        for (; i < length; i++)
+            m0 = Math.max(m0, array[i]);
+        return Math.max(Math.max(m0, m1), Math.max(m2, m3));
+    }
+
+    static int count(double[] array, int length, Comparison<?> comparison) {
+        double low = comparison.getDoubleLow();
+        double high = comparison.getDoubleHigh();
+        int c0 = 0, c1 = 0, c2 = 0, c3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            c0 += array[i] >= low & array[i] <= high ? 1 : 0;
+            c1 += array[i + 1] >= low & array[i + 1] <= high ? 1 : 0;
+            c2 += array[i + 2] >= low & array[i + 2] <= high ? 1 : 0;
+            c3 += array[i + 3] >= low & array[i + 3] <= high ? 1 : 0;
+        }
+        for (; i < length; i++)
+            c0 += array[i] >= low & array[i] <= high ? 1 : 0;
+        int count = c0 + c1 + c2 + c3;
+        return comparison.isNegated() ? length - count : count;
+    }
+
+    static double[] filter(double[] array, int length, Comparison<?> comparison) {
+        double low = comparison.getDoubleLow();
+        double high = comparison.getDoubleHigh();
+        boolean isNegated = comparison.isNegated();
+        double[] matches = new double[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            matches[count] = array[i];
+            count += (array[i] >= low & array[i] <= high) != isNegated ? 1 : 0;
+        }
+        return count == length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    static double dot(double[] x, double[] y, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += x[i] * y[i];
+            s1 += x[i + 1] * y[i + 1];
+            s2 += x[i + 2] * y[i + 2];
+            s3 += x[i + 3] * y[i + 3];
+        }
+        for (; i < length; i++)
+            s0 += x[i] * y[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    //
+    // Helpers
+    //
+
+    // Returns the range of ints a comparison matches before any negation, or null if it matches none.  The bounds of
+    // a comparison by doubles are rounded inward, which is exact since every int is a double.
+    private static int[] intRange(Comparison<?> comparison) {
+        double low;
+        double high;
+        if (comparison.isIntegral()) {
+            if (comparison.getLow() > comparison.getHigh())
+                return null;
+            low = Math.max(comparison.getLow(), Integer.MIN_VALUE);
+            high = Math.min(comparison.getHigh(), Integer.MAX_VALUE);
+        }
+        else {
+            low = Math.max(Math.ceil(comparison.getDoubleLow()), Integer.MIN_VALUE);
+            high = Math.min(Math.floor(comparison.getDoubleHigh()), Integer.MAX_VALUE);
+        }
+        if (!(low <= high))
+            return null;
+        return new int[]{(int)low, (int)high};
+    }
+
+    // Returns 1 if adding a and b to get sum wrapped past the top of the long range, -1 if past the bottom, or 0.
+    private static long wrap(long a, long b, long sum) {
+        return ((a ^ sum) & (b ^ sum)) < 0 ? (b < 0 ? -1 : 1) : 0;
+    }
+
+    private static long exact(long s0, long s1, long s2, long s3, long wrapped) {
+        long s01 = s0 + s1, s23 = s2 + s3, sum = s01 + s23;
+        if (wrapped + wrap(s0, s1, s01) + wrap(s2, s3, s23) + wrap(s01, s23, sum) != 0)
+            throw new ArithmeticException("long overflow");
+        return sum;
+    }
+}
@@ -0,0 +1,425 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * ColumnQueryList is a list of records stored off the heap by column rather than as objects, for caching more records
+ * than the garbage collector handles well.  Each column of its ColumnSchema is held in its own direct ByteBuffer at a
+ * fixed width and string columns are dictionary encoded, so a list of millions of rows is only a handful of objects to
+ * the garbage collector.
+ *
+ * A record is written into its row by the writer when it is added and a new record is read back out of its row by the
+ * reader each time one is asked for, so records only exist while they are being used.  The where, select, orderBy and
+ * aggregate methods that take a column work on the column data directly without reading any records.  The where and
+ * orderBy methods return a read-only view of the selected rows over the same storage rather than a copy.  A view sees
+ * later changes to its rows but not rows appended later, and is no longer valid once the list is cleared.  The list
+ * can be appended to, set and cleared, but rows can't be inserted or removed.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class ColumnQueryList<T> extends AbstractList<T> implements RandomAccess {
+    private ColumnStore store;
+    private BiConsumer<T, ColumnRow> writer;
+    private Function<ColumnRow, T> reader;
+    // the rows of the store a view holds, in order, or null if this is the list itself.
+    private int[] rows;
+
+    //
+    // Constructors
+    //
+
+    public ColumnQueryList(ColumnSchema schema, BiConsumer<T, ColumnRow> writer, Function<ColumnRow, T> reader) {
+        this(schema, 0, writer, reader);
+    }
+
+    public ColumnQueryList(ColumnSchema schema, int initialCapacity, BiConsumer<T, ColumnRow> writer, Function<ColumnRow, T> reader) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        this.store = new ColumnStore(schema.copy(), initialCapacity);
+        this.writer = Objects.requireNonNull(writer);
+        this.reader = Objects.requireNonNull(reader);
+    }
+
+    private ColumnQueryList(ColumnQueryList<T> list, int[] rows) {
+        this.store = list.store;
+        this.writer = list.writer;
+        this.reader = list.reader;
+        this.rows = rows;
+    }
+
+    //
+    // List Methods
+    //
+
+    /**
+     * Reads a new record out of the row at the provided index.
+     */
+    @Override
+    public T get(int index) {
+        return reader.apply(new ColumnRow(store, getRow(index)));
+    }
+
+    /**
+     * Writes the provided record over the row at the provided index and returns the record that was read out of it.
+     */
+    @Override
+    public T set(int index, T item) {
+        checkWritable();
+        T previous = get(index);
+        int row = getRow(index);
+        for (int column = 0; column < store.getSchema().size(); column++)
+            clearColumn(column, row);
+        writer.accept(item, new ColumnRow(store, row));
+        return previous;
+    }
+
+    @Override
+    public boolean add(T item) {
+        checkWritable();
+        writer.accept(item, new ColumnRow(store, store.addRow()));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        if (index != size())
+            throw new UnsupportedOperationException("ColumnQueryList can only be appended to.");
+        add(item);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        store.clear();
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return rows != null ? rows.length : store.size();
+    }
+
+    //
+    // Row Methods
+    //
+
+    public ColumnSchema getSchema() {
+        return store.getSchema().copy();
+    }
+
+    /**
+     * Appends an empty row, with zero numbers and null strings, and returns it to have its values set directly rather
+     * than through the writer.
+     */
+    public ColumnRow addRow() {
+        checkWritable();
+        ColumnRow row = new ColumnRow(store, store.addRow());
+        modCount++;
+        return row;
+    }
+
+    /**
+     * Returns the row at the provided index.
+     */
+    public ColumnRow getColumnRow(int index) {
+        return new ColumnRow(store, getRow(index));
+    }
+
+    /**
+     * Returns a Query of the rows rather than of records read out of them.
+     */
+    public Query<ColumnRow> rows() {
+        return Query.range(0, size()).select(this::getColumnRow);
+    }
+
+    /**
+     * Returns a Query of the records, for the Query methods that ColumnQueryList doesn't provide itself.
+     */
+    public Query<T> query() {
+        return Query.from(this);
+    }
+
+    //
+    // Restriction Operators
+    //
+
+    /**
+     * Returns a read-only view of the rows whose value in the provided int column satisfies the condition.
+     */
+    public ColumnQueryList<T> whereInt(String column, IntPredicate condition) {
+        int number = checkColumn(column, ColumnSchema.Type.INT);
+        return where(row -> condition.test(store.getInt(number, row)));
+    }
+
+    /**
+     * Returns a read-only view of the rows whose value in the provided long column satisfies the condition.
+     */
+    public ColumnQueryList<T> whereLong(String column, LongPredicate condition) {
+        int number = checkColumn(column, ColumnSchema.Type.LONG);
+        return where(row -> condition.test(store.getLong(number, row)));
+    }
+
+    /**
+     * Returns a read-only view of the rows whose value in the provided double column satisfies the condition.
+     */
+    public ColumnQueryList<T> whereDouble(String column, DoublePredicate condition) {
+        int number = checkColumn(column, ColumnSchema.Type.DOUBLE);
+        return where(row -> condition.test(store.getDouble(number, row)));
+    }
+
+    /**
+     * Returns a read-only view of the rows whose value in the provided string column satisfies the condition.  The
+     * condition is tested once per distinct string in the column rather than once per row.
+     */
+    public ColumnQueryList<T> whereString(String column, Predicate<String> condition) {
+        int number = checkColumn(column, ColumnSchema.Type.STRING);
+        boolean[] isMatch = new boolean[store.getDictionarySize(number)];
+        for (int code = 0; code < isMatch.length; code++)
+            isMatch[code] = condition.test(store.decode(number, code));
+        // tested only if a row holds a null, since a condition may not allow for one.
+        Boolean[] isNullMatch = {null};
+        return where(row -> {
+            int code = store.getCode(number, row);
+            if (code >= 0)
+                return isMatch[code];
+            if (isNullMatch[0] == null)
+                isNullMatch[0] = condition.test(null);
+            return isNullMatch[0];
+        });
+    }
+
+    private ColumnQueryList<T> where(IntPredicate rowCondition) {
+        int size = size();
+        int[] matches = new int[Math.min(size, 16)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows != null ? rows[i] : i;
+            if (rowCondition.test(row)) {
+                if (count == matches.length)
+                    matches = Arrays.copyOf(matches, Math.max(count + (count >> 1), 16));
+                matches[count++] = row;
+            }
+        }
+        return new ColumnQueryList<T>(this, Arrays.copyOf(matches, count));
+    }
+
+    //
+    // Projection Operators
+    //
+
+    /**
+     * Returns the values of the provided int column.
+     */
+    public IntQueryList selectInt(String column) {
+        int number = checkColumn(column, ColumnSchema.Type.INT);
+        IntQueryList values = IntQueryList.initialCapacity(size());
+        for (int i = 0; i < size(); i++)
+            values.addInt(store.getInt(number, getRow(i)));
+        return values;
+    }
+
+    /**
+     * Returns the values of the provided long column.
+     */
+    public LongQueryList selectLong(String column) {
+        int number = checkColumn(column, ColumnSchema.Type.LONG);
+        LongQueryList values = LongQueryList.initialCapacity(size());
+        for (int i = 0; i < size(); i++)
+            values.addLong(store.getLong(number, getRow(i)));
+        return values;
+    }
+
+    /**
+     * Returns the values of the provided int, long or double column as doubles.
+     */
+    public DoubleQueryList selectDouble(String column) {
+        int number = store.getSchema().indexOf(column);
+        DoubleQueryList values = DoubleQueryList.initialCapacity(size());
+        for (int i = 0; i < size(); i++)
+            values.addDouble(store.getNumber(number, getRow(i)));
+        return values;
+    }
+
+    /**
+     * Returns the values of the provided string column.
+     */
+    public QueryList<String> selectString(String column) {
+        int number = checkColumn(column, ColumnSchema.Type.STRING);
+        QueryList<String> values = new QueryList<String>();
+        values.ensureCapacity(size());
+        for (int i = 0; i < size(); i++)
+            values.add(store.getString(number, getRow(i)));
+        return values;
+    }
+
+    //
+    // Ordering Operators
+    //
+
+    /**
+     * Returns a read-only view of the rows in ascending order of the provided column.  Rows with equal values keep
+     * their order and null strings are placed last, as with Query.orderBy().
+     */
+    public ColumnQueryList<T> orderBy(String column) {
+        return new ColumnQueryList<T>(this, sortRows(getComparator(store.getSchema().indexOf(column))));
+    }
+
+    /**
+     * Returns a read-only view of the rows in descending order of the provided column.  Rows with equal values keep
+     * their order and null strings are placed first, as with Query.orderByDescending().
+     */
+    public ColumnQueryList<T> orderByDescending(String column) {
+        RowComparator comparator = getComparator(store.getSchema().indexOf(column));
+        return new ColumnQueryList<T>(this, sortRows((x, y) -> comparator.compare(y, x)));
+    }
+
+    private RowComparator getComparator(int column) {
+        switch (store.getType(column)) {
+            case INT:
+                return (x, y) -> Integer.compare(store.getInt(column, x), store.getInt(column, y));
+            case LONG:
+                return (x, y) -> Long.compare(store.getLong(column, x), store.getLong(column, y));
+            case DOUBLE:
+                return (x, y) -> Double.compare(store.getDouble(column, x), store.getDouble(column, y));
+            default:
+                // the strings are ranked once so that rows are compared by int rank, with null ranked last.
+                int dictionarySize = store.getDictionarySize(column);
+                Integer[] byValue = new Integer[dictionarySize];
+                for (int code = 0; code < dictionarySize; code++)
+                    byValue[code] = code;
+                Arrays.sort(byValue, (x, y) -> store.decode(column, x).compareTo(store.decode(column, y)));
+                int[] ranks = new int[dictionarySize];
+                for (int rank = 0; rank < dictionarySize; rank++)
+                    ranks[byValue[rank]] = rank;
+                return (x, y) -> {
+                    int xCode = store.getCode(column, x);
+                    int yCode = store.getCode(column, y);
+                    return Integer.compare(xCode < 0 ? dictionarySize : ranks[xCode], yCode < 0 ? dictionarySize : ranks[yCode]);
+                };
+        }
+    }
+
+    // Returns the rows sorted by the provided comparator with a stable merge sort.
+    private int[] sortRows(RowComparator comparator) {
+        int size = size();
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++)
+            sorted[i] = getRow(i);
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width <<= 1) {
+            for (int from = 0; from < size; from += width << 1) {
+                int middle = Math.min(from + width, size);
+                int to = Math.min(from + (width << 1), size);
+                int left = from;
+                int right = middle;
+                for (int i = from; i < to; i++)
+                    buffer[i] = right >= to || left < middle && comparator.compare(sorted[left], sorted[right]) <= 0
+                            ? sorted[left++] : sorted[right++];
+            }
+            int[] swap = sorted;
+            sorted = buffer;
+            buffer = swap;
+        }
+        return sorted;
+    }
+
+    private interface RowComparator {
+        int compare(int x, int y);
+    }
+
+    //
+    // Aggregate Operators
+    //
+
+    /**
+     * Returns the sum of the provided int or long column.  An ArithmeticException is thrown if the sum overflows.
+     */
+    public long sumLong(String column) {
+        int number = store.getSchema().indexOf(column);
+        boolean isInt = store.getType(number) == ColumnSchema.Type.INT;
+        if (!isInt)
+            store.check(number, ColumnSchema.Type.LONG);
+        long sum = 0;
+        for (int i = 0; i < size(); i++)
+            sum = Math.addExact(sum, isInt ? store.getInt(number, getRow(i)) : store.getLong(number, getRow(i)));
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the provided int, long or double column as a double, compensated against rounding error as
+     * QueryStatistics is.
+     */
+    public double sumDouble(String column) {
+        return stats(column).getSum();
+    }
+
+    /**
+     * Returns the summary statistics of the provided int, long or double column, gathered in a single pass.
+     */
+    public QueryStatistics stats(String column) {
+        int number = store.getSchema().indexOf(column);
+        QueryStatistics statistics = new QueryStatistics();
+        for (int i = 0; i < size(); i++)
+            statistics.accept(store.getNumber(number, getRow(i)));
+        return statistics;
+    }
+
+    //
+    // Conversion Operators
+    //
+
+    /**
+     * Reads every record out into a new QueryList.
+     */
+    public QueryList<T> toList() {
+        QueryList<T> list = new QueryList<T>();
+        list.ensureCapacity(size());
+        for (int i = 0; i < size(); i++)
+            list.add(get(i));
+        return list;
+    }
+
+    //
+    // Helpers
+    //
+
+    private int getRow(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        return rows != null ? rows[index] : index;
+    }
+
+    private int checkColumn(String column, ColumnSchema.Type type) {
+        int number = store.getSchema().indexOf(column);
+        store.check(number, type);
+        return number;
+    }
+
+    // Resets a column of a row to zero or a null string before a record is written over it.
+    private void clearColumn(int column, int row) {
+        switch (store.getType(column)) {
+            case INT:
+                store.setInt(column, row, 0);
+                break;
+            case LONG:
+                store.setLong(column, row, 0);
+                break;
+            case DOUBLE:
+                store.setDouble(column, row, 0);
+                break;
+            default:
+                store.setString(column, row, null);
+        }
+    }
+
+    private void checkWritable() {
+        if (rows != null)
+            throw new UnsupportedOperationException("A view of a ColumnQueryList is read-only.");
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnQueryList{size=" + size() + ", schema=" + store.getSchema() + "}";
+    }
+}
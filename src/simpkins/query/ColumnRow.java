@@ -0,0 +1,117 @@
+package simpkins.query;
+
+/**
+ * A view of one row of a ColumnQueryList.  Reading a value reads it straight from the column it is stored in and
+ * setting a value writes it straight back, so a row is only valid while the list still holds it.  Columns can be
+ * addressed by name or, to skip looking the name up, by number.  An exception is thrown if a column is read or set as
+ * the wrong type.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+public class ColumnRow {
+    private ColumnStore store;
+    private int row;
+
+    ColumnRow(ColumnStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    public int getInt(int column) {
+        store.check(column, ColumnSchema.Type.INT);
+        return store.getInt(column, row);
+    }
+
+    public int getInt(String column) {
+        return getInt(store.getSchema().indexOf(column));
+    }
+
+    public long getLong(int column) {
+        store.check(column, ColumnSchema.Type.LONG);
+        return store.getLong(column, row);
+    }
+
+    public long getLong(String column) {
+        return getLong(store.getSchema().indexOf(column));
+    }
+
+    public double getDouble(int column) {
+        store.check(column, ColumnSchema.Type.DOUBLE);
+        return store.getDouble(column, row);
+    }
+
+    public double getDouble(String column) {
+        return getDouble(store.getSchema().indexOf(column));
+    }
+
+    public String getString(int column) {
+        store.check(column, ColumnSchema.Type.STRING);
+        return store.getString(column, row);
+    }
+
+    public String getString(String column) {
+        return getString(store.getSchema().indexOf(column));
+    }
+
+    public ColumnRow setInt(int column, int value) {
+        store.check(column, ColumnSchema.Type.INT);
+        store.setInt(column, row, value);
+        return this;
+    }
+
+    public ColumnRow setInt(String column, int value) {
+        return setInt(store.getSchema().indexOf(column), value);
+    }
+
+    public ColumnRow setLong(int column, long value) {
+        store.check(column, ColumnSchema.Type.LONG);
+        store.setLong(column, row, value);
+        return this;
+    }
+
+    public ColumnRow setLong(String column, long value) {
+        return setLong(store.getSchema().indexOf(column), value);
+    }
+
+    public ColumnRow setDouble(int column, double value) {
+        store.check(column, ColumnSchema.Type.DOUBLE);
+        store.setDouble(column, row, value);
+        return this;
+    }
+
+    public ColumnRow setDouble(String column, double value) {
+        return setDouble(store.getSchema().indexOf(column), value);
+    }
+
+    public ColumnRow setString(int column, String value) {
+        store.check(column, ColumnSchema.Type.STRING);
+        store.setString(column, row, value);
+        return this;
+    }
+
+    public ColumnRow setString(String column, String value) {
+        return setString(store.getSchema().indexOf(column), value);
+    }
+
+    @Override
+    public String toString() {
+        ColumnSchema schema = store.getSchema();
+        StringBuilder builder = new StringBuilder("ColumnRow{");
+        for (int column = 0; column < schema.size(); column++) {
+            builder.append(column > 0 ? ", " : "").append(schema.getName(column)).append('=');
+            switch (schema.getType(column)) {
+                case INT:
+                    builder.append(store.getInt(column, row));
+                    break;
+                case LONG:
+                    builder.append(store.getLong(column, row));
+                    break;
+                case DOUBLE:
+                    builder.append(store.getDouble(column, row));
+                    break;
+                default:
+                    builder.append(store.getString(column, row));
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
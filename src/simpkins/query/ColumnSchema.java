@@ -0,0 +1,110 @@
+package simpkins.query;
+
+import java.util.*;
+
+/**
+ * The columns of a ColumnQueryList, each with a name and a fixed width type.  Columns are added in order and are
+ * numbered from zero in that order, so they can be addressed by number as well as by name.  A ColumnQueryList takes a
+ * copy of the schema it is created with, so later additions to the schema don't affect it.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class ColumnSchema {
+    private List<String> names = new ArrayList<String>();
+    private List<Type> types = new ArrayList<Type>();
+    private Map<String, Integer> numbers = new HashMap<String, Integer>();
+
+    public ColumnSchema() {
+    }
+
+    private ColumnSchema(ColumnSchema schema) {
+        names.addAll(schema.names);
+        types.addAll(schema.types);
+        numbers.putAll(schema.numbers);
+    }
+
+    public ColumnSchema intColumn(String name) {
+        return column(name, Type.INT);
+    }
+
+    public ColumnSchema longColumn(String name) {
+        return column(name, Type.LONG);
+    }
+
+    public ColumnSchema doubleColumn(String name) {
+        return column(name, Type.DOUBLE);
+    }
+
+    /**
+     * Adds a string column.  Each distinct string is stored once in a dictionary and the column holds its code, so a
+     * string column suits values that repeat, such as symbols or categories.
+     */
+    public ColumnSchema stringColumn(String name) {
+        return column(name, Type.STRING);
+    }
+
+    public ColumnSchema column(String name, Type type) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(type);
+        if (numbers.containsKey(name))
+            throw new RuntimeException("ColumnSchema already has a column named " + name + ".");
+        numbers.put(name, names.size());
+        names.add(name);
+        types.add(type);
+        return this;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String getName(int column) {
+        return names.get(column);
+    }
+
+    public Type getType(int column) {
+        return types.get(column);
+    }
+
+    /**
+     * Returns the number of the column with the provided name.  An exception is thrown if there is no such column.
+     */
+    public int indexOf(String name) {
+        Integer column = numbers.get(name);
+        if (column == null)
+            throw new RuntimeException("ColumnSchema has no column named " + name + ".");
+        return column;
+    }
+
+    ColumnSchema copy() {
+        return new ColumnSchema(this);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ColumnSchema{");
+        for (int i = 0; i < names.size(); i++)
+            builder.append(i > 0 ? ", " : "").append(names.get(i)).append('=').append(types.get(i));
+        return builder.append('}').toString();
+    }
+
+    /**
+     * The types a column can hold, each with the number of bytes it takes per row.
+     */
+    public enum Type {
+        INT(4),
+        LONG(8),
+        DOUBLE(8),
+        // the int code of the string in the column's dictionary.
+        STRING(4);
+
+        private int width;
+
+        Type(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package simpkins.query;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+// The off-heap storage behind a ColumnQueryList: one direct ByteBuffer per column holding the rows at a fixed width, and
+// a dictionary for each string column.  Only the buffers themselves and the dictionaries are on the heap, so the
+// garbage collector has next to nothing to trace however many rows there are.
+@SuppressWarnings({"Convert2Diamond"})
+class ColumnStore {
+    private static final int MIN_CAPACITY = 16;
+    // the code stored for a null string.
+    private static final int NULL_CODE = -1;
+
+    private ColumnSchema schema;
+    private ColumnSchema.Type[] types;
+    private ByteBuffer[] columns;
+    private List<List<String>> dictionaries = new ArrayList<List<String>>();
+    private List<Map<String, Integer>> codes = new ArrayList<Map<String, Integer>>();
+    private int size = 0;
+    private int capacity = 0;
+
+    ColumnStore(ColumnSchema schema, int initialCapacity) {
+        this.schema = schema;
+        types = new ColumnSchema.Type[schema.size()];
+        columns = new ByteBuffer[schema.size()];
+        for (int column = 0; column < types.length; column++) {
+            types[column] = schema.getType(column);
+            boolean isString = types[column] == ColumnSchema.Type.STRING;
+            dictionaries.add(isString ? new ArrayList<String>() : null);
+            codes.add(isString ? new HashMap<String, Integer>() : null);
+        }
+        grow(Math.max(initialCapacity, MIN_CAPACITY));
+    }
+
+    ColumnSchema getSchema() {
+        return schema;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Appends a row of zeros and null strings and returns its number.
+    int addRow() {
+        if (size == capacity)
+            grow(capacity + (capacity >> 1));
+        int row = size++;
+        for (int column = 0; column < types.length; column++) {
+            if (types[column] == ColumnSchema.Type.INT)
+                columns[column].putInt(row << 2, 0);
+            else if (types[column] == ColumnSchema.Type.STRING)
+                columns[column].putInt(row << 2, NULL_CODE);
+            else
+                columns[column].putLong(row << 3, 0);
+        }
+        return row;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // Throws if the column doesn't hold the expected type.
+    void check(int column, ColumnSchema.Type type) {
+        if (types[column] != type)
+            throw new RuntimeException("Column " + schema.getName(column) + " is " + types[column] + ", not " + type + ".");
+    }
+
+    ColumnSchema.Type getType(int column) {
+        return types[column];
+    }
+
+    int getInt(int column, int row) {
+        return columns[column].getInt(row << 2);
+    }
+
+    long getLong(int column, int row) {
+        return columns[column].getLong(row << 3);
+    }
+
+    double getDouble(int column, int row) {
+        return columns[column].getDouble(row << 3);
+    }
+
+    // Returns the value of an INT, LONG or DOUBLE column as a double.
+    double getNumber(int column, int row) {
+        switch (types[column]) {
+            case INT:
+                return getInt(column, row);
+            case LONG:
+                return getLong(column, row);
+            case DOUBLE:
+                return getDouble(column, row);
+            default:
+                throw new RuntimeException("Column " + schema.getName(column) + " is " + types[column] + ", not a number.");
+        }
+    }
+
+    void setInt(int column, int row, int value) {
+        columns[column].putInt(row << 2, value);
+    }
+
+    void setLong(int column, int row, long value) {
+        columns[column].putLong(row << 3, value);
+    }
+
+    void setDouble(int column, int row, double value) {
+        columns[column].putDouble(row << 3, value);
+    }
+
+    //
+    // String columns
+    //
+
+    // Returns the dictionary code of the string in a row, or -1 for null.
+    int getCode(int column, int row) {
+        return columns[column].getInt(row << 2);
+    }
+
+    String getString(int column, int row) {
+        return decode(column, getCode(column, row));
+    }
+
+    void setString(int column, int row, String value) {
+        columns[column].putInt(row << 2, encode(column, value));
+    }
+
+    String decode(int column, int code) {
+        return code == NULL_CODE ? null : dictionaries.get(column).get(code);
+    }
+
+    // Returns the number of distinct strings the column has held.  Codes run from zero to one less than this.
+    int getDictionarySize(int column) {
+        return dictionaries.get(column).size();
+    }
+
+    private int encode(int column, String value) {
+        if (value == null)
+            return NULL_CODE;
+        Map<String, Integer> columnCodes = codes.get(column);
+        Integer code = columnCodes.get(value);
+        if (code == null) {
+            List<String> dictionary = dictionaries.get(column);
+            columnCodes.put(value, code = dictionary.size());
+            dictionary.add(value);
+        }
+        return code;
+    }
+
+    //
+    // Growth
+    //
+
+    private void grow(int newCapacity) {
+        // a ByteBuffer holds at most Integer.MAX_VALUE bytes, which limits the rows of the widest column.
+        int maxCapacity = Integer.MAX_VALUE;
+        for (ColumnSchema.Type type : types)
+            maxCapacity = Math.min(maxCapacity, Integer.MAX_VALUE / type.getWidth());
+        newCapacity = Math.min(newCapacity, maxCapacity);
+        if (newCapacity <= capacity)
+            throw new RuntimeException("ColumnQueryList cannot hold more than " + capacity + " rows.");
+        for (int column = 0; column < types.length; column++) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity * types[column].getWidth()).order(ByteOrder.nativeOrder());
+            if (columns[column] != null) {
+                ByteBuffer rows = columns[column].duplicate();
+                rows.position(0);
+                rows.limit(size * types[column].getWidth());
+                grown.put(rows);
+                grown.clear();
+            }
+            columns[column] = grown;
+        }
+        capacity = newCapacity;
+    }
+}
@@ -0,0 +1,150 @@
+package simpkins.query;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A predicate comparing a number against constant bounds.  It works like any other predicate, but because its bounds
+ * are known rather than hidden in a lambda, count(), sum(), min() and max() over a where() by a Comparison on a Query
+ * of an int[], long[] or double[] run a tight loop over the array instead of boxing each item, as do count() and
+ * where() on IntQueryList, LongQueryList and DoubleQueryList.
+ *
+ * Numbers are compared as longs when both the number and the bound are integral types, and as doubles otherwise, the
+ * same as the primitive comparison operators would.  A null never matches and NaN only matches notEqualTo().
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+public class Comparison<T extends Number> implements Predicate<T> {
+    private String description;
+    private boolean isIntegral;
+    // the inclusive range of matching values for integral numbers.  An empty range has a low above its high.
+    private long low;
+    private long high;
+    // the inclusive range of matching values for any other numbers.
+    private double doubleLow;
+    private double doubleHigh;
+    // set for notEqualTo(), which matches everything outside the range.
+    private boolean isNegated;
+
+    private Comparison(String description, boolean isIntegral, long low, long high, double doubleLow, double doubleHigh, boolean isNegated) {
+        this.description = description;
+        this.isIntegral = isIntegral;
+        this.low = low;
+        this.high = high;
+        this.doubleLow = doubleLow;
+        this.doubleHigh = doubleHigh;
+        this.isNegated = isNegated;
+    }
+
+    public static <T extends Number> Comparison<T> lessThan(T bound) {
+        double doubleHigh = Math.nextDown(bound.doubleValue());
+        if (!isIntegral(bound))
+            return real("< " + bound, Double.NEGATIVE_INFINITY, doubleHigh, false);
+        long value = bound.longValue();
+        if (value == Long.MIN_VALUE)
+            return new Comparison<T>("< " + bound, true, 1, 0, Double.NEGATIVE_INFINITY, doubleHigh, false);
+        return new Comparison<T>("< " + bound, true, Long.MIN_VALUE, value - 1, Double.NEGATIVE_INFINITY, doubleHigh, false);
+    }
+
+    public static <T extends Number> Comparison<T> atMost(T bound) {
+        if (!isIntegral(bound))
+            return real("<= " + bound, Double.NEGATIVE_INFINITY, bound.doubleValue(), false);
+        return new Comparison<T>("<= " + bound, true, Long.MIN_VALUE, bound.longValue(), Double.NEGATIVE_INFINITY, bound.doubleValue(), false);
+    }
+
+    public static <T extends Number> Comparison<T> greaterThan(T bound) {
+        double doubleLow = Math.nextUp(bound.doubleValue());
+        if (!isIntegral(bound))
+            return real("> " + bound, doubleLow, Double.POSITIVE_INFINITY, false);
+        long value = bound.longValue();
+        if (value == Long.MAX_VALUE)
+            return new Comparison<T>("> " + bound, true, 1, 0, doubleLow, Double.POSITIVE_INFINITY, false);
+        return new Comparison<T>("> " + bound, true, value + 1, Long.MAX_VALUE, doubleLow, Double.POSITIVE_INFINITY, false);
+    }
+
+    public static <T extends Number> Comparison<T> atLeast(T bound) {
+        if (!isIntegral(bound))
+            return real(">= " + bound, bound.doubleValue(), Double.POSITIVE_INFINITY, false);
+        return new Comparison<T>(">= " + bound, true, bound.longValue(), Long.MAX_VALUE, bound.doubleValue(), Double.POSITIVE_INFINITY, false);
+    }
+
+    public static <T extends Number> Comparison<T> equalTo(T bound) {
+        if (!isIntegral(bound))
+            return real("== " + bound, bound.doubleValue(), bound.doubleValue(), false);
+        return new Comparison<T>("== " + bound, true, bound.longValue(), bound.longValue(), bound.doubleValue(), bound.doubleValue(), false);
+    }
+
+    public static <T extends Number> Comparison<T> notEqualTo(T bound) {
+        if (!isIntegral(bound))
+            return real("!= " + bound, bound.doubleValue(), bound.doubleValue(), true);
+        return new Comparison<T>("!= " + bound, true, bound.longValue(), bound.longValue(), bound.doubleValue(), bound.doubleValue(), true);
+    }
+
+    /**
+     * Returns a comparison matching numbers from low to high, both inclusive.
+     */
+    public static <T extends Number> Comparison<T> between(T low, T high) {
+        String description = "between " + low + " and " + high;
+        if (!isIntegral(low) || !isIntegral(high))
+            return real(description, low.doubleValue(), high.doubleValue(), false);
+        return new Comparison<T>(description, true, low.longValue(), high.longValue(), low.doubleValue(), high.doubleValue(), false);
+    }
+
+    private static <T extends Number> Comparison<T> real(String description, double low, double high, boolean isNegated) {
+        return new Comparison<T>(description, false, 1, 0, low, high, isNegated);
+    }
+
+    private static boolean isIntegral(Number number) {
+        Objects.requireNonNull(number);
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    @Override
+    public boolean test(T value) {
+        if (value == null)
+            return false;
+        boolean isInRange;
+        if (isIntegral && isIntegral(value)) {
+            long number = value.longValue();
+            isInRange = number >= low && number <= high;
+        }
+        else {
+            double number = value.doubleValue();
+            isInRange = number >= doubleLow && number <= doubleHigh;
+        }
+        return isInRange != isNegated;
+    }
+
+    //
+    // Range access for the array kernels
+    //
+
+    // Returns true if integral numbers are compared by the long range.
+    boolean isIntegral() {
+        return isIntegral;
+    }
+
+    long getLow() {
+        return low;
+    }
+
+    long getHigh() {
+        return high;
+    }
+
+    double getDoubleLow() {
+        return doubleLow;
+    }
+
+    double getDoubleHigh() {
+        return doubleHigh;
+    }
+
+    boolean isNegated() {
+        return isNegated;
+    }
+
+    @Override
+    public String toString() {
+        return "Comparison{" + description + "}";
+    }
+}
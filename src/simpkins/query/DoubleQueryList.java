@@ -0,0 +1,374 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * DoubleQueryList is a growable list of doubles held in a primitive array rather than as boxed Doubles, so it takes
+ * less than half the memory of a QueryList of the same values.  It is a List of Doubles like any other and boxes each
+ * value as it is read that way, but where(), select(), orderBy(), distinct() and the aggregates work on the array
+ * directly.  The rest of the Query methods are reached through query().  Null can't be stored.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class DoubleQueryList extends AbstractList<Double> implements RandomAccess {
+    private static final double[] EMPTY = {};
+
+    private double[] items;
+    private int size;
+
+    //
+    // Constructors
+    //
+
+    public DoubleQueryList() {
+        items = EMPTY;
+    }
+
+    public DoubleQueryList(double... items) {
+        this.items = items.clone();
+        size = items.length;
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the DoubleQueryList.
+    public DoubleQueryList(Iterable<Double> items) {
+        this.items = EMPTY;
+        for (Double item : items)
+            addDouble(item);
+    }
+
+    public DoubleQueryList(Collection<Double> items) {
+        this.items = new double[items.size()];
+        for (Double item : items)
+            addDouble(item);
+    }
+
+    //
+    // Static Constructors
+    //
+
+    public static DoubleQueryList of(double... items) {
+        return new DoubleQueryList(items);
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the DoubleQueryList.
+    public static DoubleQueryList of(Iterable<Double> items) {
+        return new DoubleQueryList(items);
+    }
+
+    public static DoubleQueryList of(Collection<Double> items) {
+        return new DoubleQueryList(items);
+    }
+
+    public static DoubleQueryList initialCapacity(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + value);
+        DoubleQueryList list = new DoubleQueryList();
+        list.items = new double[value];
+        return list;
+    }
+
+    //
+    // List Methods
+    //
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public Double set(int index, Double value) {
+        return setDouble(index, value);
+    }
+
+    @Override
+    public void add(int index, Double value) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        double item = value;
+        grow(size + 1);
+        System.arraycopy(items, index, items, index + 1, size - index);
+        items[index] = item;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Double remove(int index) {
+        double removed = getDouble(index);
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // Primitive Methods
+    //
+
+    /**
+     * Returns the double at the provided index without boxing it.
+     */
+    public double getDouble(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return items[index];
+    }
+
+    /**
+     * Replaces the double at the provided index and returns the one it replaced.
+     */
+    public double setDouble(int index, double value) {
+        double previous = getDouble(index);
+        items[index] = value;
+        return previous;
+    }
+
+    /**
+     * Appends the provided double without boxing it.
+     */
+    public DoubleQueryList addDouble(double value) {
+        grow(size + 1);
+        items[size++] = value;
+        modCount++;
+        return this;
+    }
+
+    /**
+     * Appends the provided doubles.
+     */
+    public DoubleQueryList addAll(double... values) {
+        grow(size + values.length);
+        System.arraycopy(values, 0, items, size, values.length);
+        size += values.length;
+        modCount++;
+        return this;
+    }
+
+    public boolean containsDouble(double value) {
+        for (int i = 0; i < size; i++)
+            if (items[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the doubles as a new array.
+     */
+    public double[] toDoubleArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    public void ensureCapacity(int capacity) {
+        grow(capacity);
+    }
+
+    public void trimToSize() {
+        if (items.length > size)
+            items = Arrays.copyOf(items, size);
+    }
+
+    private void grow(int capacity) {
+        if (capacity > items.length)
+            items = Arrays.copyOf(items, Math.max(capacity, Math.max(items.length + (items.length >> 1), 10)));
+    }
+
+    //
+    // Query Methods
+    //
+
+    /**
+     * Returns a Query over the boxed values, for the Query methods that DoubleQueryList doesn't provide itself.
+     */
+    public Query<Double> query() {
+        return Query.from(this);
+    }
+
+    /**
+     * Returns the doubles that satisfy the provided comparison as a new DoubleQueryList.  The comparison is run as a
+     * tight loop over the array rather than tested against each value in turn.
+     */
+    public DoubleQueryList where(Comparison<Double> comparison) {
+        DoubleQueryList result = new DoubleQueryList();
+        result.items = ArrayKernels.filter(items, size, comparison);
+        result.size = result.items.length;
+        return result;
+    }
+
+    /**
+     * Returns the doubles that satisfy the provided condition as a new DoubleQueryList.  Unlike Query.where() the
+     * result is computed immediately.
+     */
+    public DoubleQueryList where(DoublePredicate condition) {
+        DoubleQueryList result = new DoubleQueryList();
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                result.addDouble(items[i]);
+        return result;
+    }
+
+    /**
+     * Returns the projection of each double as a new DoubleQueryList.  Unlike Query.select() the result is computed
+     * immediately.
+     */
+    public DoubleQueryList select(DoubleUnaryOperator selector) {
+        DoubleQueryList result = initialCapacity(size);
+        for (int i = 0; i < size; i++)
+            result.items[i] = selector.applyAsDouble(items[i]);
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * Returns the doubles in ascending order as a new DoubleQueryList.
+     */
+    public DoubleQueryList orderBy() {
+        DoubleQueryList result = new DoubleQueryList(toDoubleArray());
+        Arrays.sort(result.items);
+        return result;
+    }
+
+    /**
+     * Returns the doubles in descending order as a new DoubleQueryList.
+     */
+    public DoubleQueryList orderByDescending() {
+        DoubleQueryList result = orderBy();
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            double swap = result.items[i];
+            result.items[i] = result.items[j];
+            result.items[j] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct doubles in the order they first appear as a new DoubleQueryList.  The doubles are sorted to
+     * find the distinct values rather than hashed, so no boxing or hash table is needed.  Doubles are distinct as by
+     * Double.equals(), so every NaN is the same value and 0.0 and -0.0 are different values.
+     */
+    public DoubleQueryList distinct() {
+        double[] sorted = toDoubleArray();
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (unique == 0 || Double.compare(sorted[i], sorted[unique - 1]) != 0)
+                sorted[unique++] = sorted[i];
+        boolean[] isSeen = new boolean[unique];
+        DoubleQueryList result = initialCapacity(unique);
+        for (int i = 0; i < size; i++) {
+            int position = Arrays.binarySearch(sorted, 0, unique, items[i]);
+            if (!isSeen[position]) {
+                isSeen[position] = true;
+                result.items[result.size++] = items[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of doubles that satisfy the provided comparison, run as a tight loop over the array.
+     */
+    public int count(Comparison<Double> comparison) {
+        return ArrayKernels.count(items, size, comparison);
+    }
+
+    /**
+     * Returns the number of doubles that satisfy the provided condition.
+     */
+    public int count(DoublePredicate condition) {
+        int count = 0;
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the sum of the doubles, compensated against rounding error as QueryStatistics is.
+     */
+    public double sum() {
+        return ArrayKernels.sumCompensated(items, size);
+    }
+
+    /**
+     * Returns the lowest double, or null if there are none.  As with Math.min(), a NaN makes the result NaN.
+     */
+    public Double min() {
+        return size == 0 ? null : ArrayKernels.min(items, size);
+    }
+
+    /**
+     * Returns the highest double, or null if there are none.  As with Math.max(), a NaN makes the result NaN.
+     */
+    public Double max() {
+        return size == 0 ? null : ArrayKernels.max(items, size);
+    }
+
+    /**
+     * Returns the sum of the products of the doubles at each position of this list and the other.  The lists must be
+     * the same size.
+     */
+    public double dot(DoubleQueryList other) {
+        if (other.size != size)
+            throw new RuntimeException("Dot product requires lists of the same size.");
+        return ArrayKernels.dot(items, other.items, size);
+    }
+
+    /**
+     * Returns the mean of the doubles, or null if there are none.
+     */
+    public Double average() {
+        return size == 0 ? null : sum() / size;
+    }
+
+    /**
+     * Returns the summary statistics of the doubles, gathered in a single pass.
+     */
+    public QueryStatistics stats() {
+        QueryStatistics statistics = new QueryStatistics();
+        for (int i = 0; i < size; i++)
+            statistics.accept(items[i]);
+        return statistics;
+    }
+
+    //
+    // Conversion Methods
+    //
+
+    /**
+     * Returns the values boxed in a new QueryList.
+     */
+    public QueryList<Double> toList() {
+        QueryList<Double> list = new QueryList<Double>();
+        list.ensureCapacity(size);
+        for (int i = 0; i < size; i++)
+            list.add(items[i]);
+        return list;
+    }
+
+    /**
+     * Returns a read-only ArrayCollection over a copy of the doubles.
+     */
+    public ArrayCollection<Double> toArrayCollection() {
+        return new ArrayCollection<Double>(toDoubleArray());
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleQueryList{size=" + size + ", values=" + super.toString() + "}";
+    }
+}
@@ -0,0 +1,179 @@
+package simpkins.query;
+
+import java.util.*;
+
+/**
+ * A Space-Saving sketch that tracks the most frequent keys of a stream in a fixed number of counters.  When a new key
+ * arrives and every counter is taken, the key with the lowest count is evicted and the new key inherits its count.
+ * Each tracked count can therefore overestimate the true count, but never by more than its recorded error, and every
+ * error is at most the total count divided by the capacity.  Any key whose true count exceeds that bound is guaranteed
+ * to be tracked.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class FrequencySketch<K> {
+    private int capacity;
+    private long count = 0;
+    private Map<K, Counter<K>> counters;
+    // a min-heap of the counters by count, so the eviction candidate is always at the root.
+    private Counter<K>[] heap;
+    private int size = 0;
+
+    public FrequencySketch(int capacity) {
+        if (capacity <= 0)
+            throw new RuntimeException("FrequencySketch capacity must be greater than zero.");
+        this.capacity = capacity;
+        this.counters = new HashMap<K, Counter<K>>(QueryMap.capacityFor(capacity));
+        @SuppressWarnings("unchecked")
+        Counter<K>[] heap = (Counter<K>[])new Counter<?>[capacity];
+        this.heap = heap;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the total number of keys added.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the most that any tracked count can overestimate the true count of its key.
+     */
+    public long getMaxError() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    /**
+     * Adds a key to the sketch.
+     */
+    public FrequencySketch<K> add(K key) {
+        count++;
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            counter.count++;
+            siftDown(counter.heapIndex);
+        }
+        else if (size < capacity) {
+            counter = new Counter<K>(key, 1, 0);
+            counters.put(key, counter);
+            heap[size] = counter;
+            counter.heapIndex = size;
+            siftUp(size++);
+        }
+        else {
+            // the new key replaces the lowest counter and inherits its count as error.
+            counter = heap[0];
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.count;
+            counter.count++;
+            counters.put(key, counter);
+            siftDown(0);
+        }
+        return this;
+    }
+
+    /**
+     * Returns true if the provided key currently has a counter.
+     */
+    public boolean isTracked(K key) {
+        return counters.containsKey(key);
+    }
+
+    /**
+     * Returns the estimated count of the provided key, which is an upper bound on its true count, or 0 if the key is
+     * not tracked.
+     */
+    public long estimate(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * Returns how much the estimated count of the provided key could exceed its true count.  Untracked keys may have
+     * a true count of up to getMaxError().
+     */
+    public long getError(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter == null ? getMaxError() : counter.error;
+    }
+
+    /**
+     * Returns a lower bound on the true count of the provided key.
+     */
+    public long getLowerBound(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter == null ? 0 : counter.count - counter.error;
+    }
+
+    /**
+     * Returns up to n of the tracked keys with the highest estimated counts, mapped to those counts and ordered from
+     * the highest count to the lowest.
+     */
+    public QueryMap<K, Long> top(int n) {
+        if (n < 0)
+            throw new RuntimeException("FrequencySketch top n cannot be less than zero.");
+        List<Counter<K>> sorted = new ArrayList<Counter<K>>(size);
+        for (int i = 0; i < size; i++)
+            sorted.add(heap[i]);
+        sorted.sort((x, y) -> Long.compare(y.count, x.count));
+        QueryMap<K, Long> top = new QueryMap<K, Long>();
+        for (int i = 0; i < Math.min(n, sorted.size()); i++)
+            top.put(sorted.get(i).key, sorted.get(i).count);
+        return top;
+    }
+
+    private void siftUp(int index) {
+        Counter<K> counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count)
+                break;
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter<K> counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count)
+                child++;
+            if (counter.count <= heap[child].count)
+                break;
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter<K> counter, int index) {
+        heap[index] = counter;
+        counter.heapIndex = index;
+    }
+
+    private static class Counter<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int heapIndex;
+
+        private Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FrequencySketch{capacity=" + capacity + ", count=" + count + ", maxError=" + getMaxError() + "}";
+    }
+}
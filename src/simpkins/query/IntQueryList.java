@@ -0,0 +1,373 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * IntQueryList is a growable list of ints held in a primitive array rather than as boxed Integers, so it takes about a
+ * fifth of the memory of a QueryList of the same values.  It is a List of Integers like any other and boxes each value
+ * as it is read that way, but where(), select(), orderBy(), distinct() and the aggregates work on the array directly.
+ * The rest of the Query methods are reached through query().  Null can't be stored.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class IntQueryList extends AbstractList<Integer> implements RandomAccess {
+    private static final int[] EMPTY = {};
+
+    private int[] items;
+    private int size;
+
+    //
+    // Constructors
+    //
+
+    public IntQueryList() {
+        items = EMPTY;
+    }
+
+    public IntQueryList(int... items) {
+        this.items = items.clone();
+        size = items.length;
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the IntQueryList.
+    public IntQueryList(Iterable<Integer> items) {
+        this.items = EMPTY;
+        for (Integer item : items)
+            addInt(item);
+    }
+
+    public IntQueryList(Collection<Integer> items) {
+        this.items = new int[items.size()];
+        for (Integer item : items)
+            addInt(item);
+    }
+
+    //
+    // Static Constructors
+    //
+
+    public static IntQueryList of(int... items) {
+        return new IntQueryList(items);
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the IntQueryList.
+    public static IntQueryList of(Iterable<Integer> items) {
+        return new IntQueryList(items);
+    }
+
+    public static IntQueryList of(Collection<Integer> items) {
+        return new IntQueryList(items);
+    }
+
+    public static IntQueryList initialCapacity(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + value);
+        IntQueryList list = new IntQueryList();
+        list.items = new int[value];
+        return list;
+    }
+
+    //
+    // List Methods
+    //
+
+    @Override
+    public Integer get(int index) {
+        return getInt(index);
+    }
+
+    @Override
+    public Integer set(int index, Integer value) {
+        return setInt(index, value);
+    }
+
+    @Override
+    public void add(int index, Integer value) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int item = value;
+        grow(size + 1);
+        System.arraycopy(items, index, items, index + 1, size - index);
+        items[index] = item;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        int removed = getInt(index);
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // Primitive Methods
+    //
+
+    /**
+     * Returns the int at the provided index without boxing it.
+     */
+    public int getInt(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return items[index];
+    }
+
+    /**
+     * Replaces the int at the provided index and returns the one it replaced.
+     */
+    public int setInt(int index, int value) {
+        int previous = getInt(index);
+        items[index] = value;
+        return previous;
+    }
+
+    /**
+     * Appends the provided int without boxing it.
+     */
+    public IntQueryList addInt(int value) {
+        grow(size + 1);
+        items[size++] = value;
+        modCount++;
+        return this;
+    }
+
+    /**
+     * Appends the provided ints.
+     */
+    public IntQueryList addAll(int... values) {
+        grow(size + values.length);
+        System.arraycopy(values, 0, items, size, values.length);
+        size += values.length;
+        modCount++;
+        return this;
+    }
+
+    public boolean containsInt(int value) {
+        for (int i = 0; i < size; i++)
+            if (items[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the ints as a new array.
+     */
+    public int[] toIntArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    public void ensureCapacity(int capacity) {
+        grow(capacity);
+    }
+
+    public void trimToSize() {
+        if (items.length > size)
+            items = Arrays.copyOf(items, size);
+    }
+
+    private void grow(int capacity) {
+        if (capacity > items.length)
+            items = Arrays.copyOf(items, Math.max(capacity, Math.max(items.length + (items.length >> 1), 10)));
+    }
+
+    //
+    // Query Methods
+    //
+
+    /**
+     * Returns a Query over the boxed values, for the Query methods that IntQueryList doesn't provide itself.
+     */
+    public Query<Integer> query() {
+        return Query.from(this);
+    }
+
+    /**
+     * Returns the ints that satisfy the provided comparison as a new IntQueryList.  The comparison is run as a tight
+     * loop over the array rather than tested against each value in turn.
+     */
+    public IntQueryList where(Comparison<Integer> comparison) {
+        IntQueryList result = new IntQueryList();
+        result.items = ArrayKernels.filter(items, size, comparison);
+        result.size = result.items.length;
+        return result;
+    }
+
+    /**
+     * Returns the ints that satisfy the provided condition as a new IntQueryList.  Unlike Query.where() the result is
+     * computed immediately.
+     */
+    public IntQueryList where(IntPredicate condition) {
+        IntQueryList result = new IntQueryList();
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                result.addInt(items[i]);
+        return result;
+    }
+
+    /**
+     * Returns the projection of each int as a new IntQueryList.  Unlike Query.select() the result is computed
+     * immediately.
+     */
+    public IntQueryList select(IntUnaryOperator selector) {
+        IntQueryList result = initialCapacity(size);
+        for (int i = 0; i < size; i++)
+            result.items[i] = selector.applyAsInt(items[i]);
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * Returns the ints in ascending order as a new IntQueryList.
+     */
+    public IntQueryList orderBy() {
+        IntQueryList result = new IntQueryList(toIntArray());
+        Arrays.sort(result.items);
+        return result;
+    }
+
+    /**
+     * Returns the ints in descending order as a new IntQueryList.
+     */
+    public IntQueryList orderByDescending() {
+        IntQueryList result = orderBy();
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int swap = result.items[i];
+            result.items[i] = result.items[j];
+            result.items[j] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct ints in the order they first appear as a new IntQueryList.  The ints are sorted to find
+     * the distinct values rather than hashed, so no boxing or hash table is needed.
+     */
+    public IntQueryList distinct() {
+        int[] sorted = toIntArray();
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (unique == 0 || sorted[i] != sorted[unique - 1])
+                sorted[unique++] = sorted[i];
+        boolean[] isSeen = new boolean[unique];
+        IntQueryList result = initialCapacity(unique);
+        for (int i = 0; i < size; i++) {
+            int position = Arrays.binarySearch(sorted, 0, unique, items[i]);
+            if (!isSeen[position]) {
+                isSeen[position] = true;
+                result.items[result.size++] = items[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of ints that satisfy the provided comparison, run as a tight loop over the array.
+     */
+    public int count(Comparison<Integer> comparison) {
+        return ArrayKernels.count(items, size, comparison);
+    }
+
+    /**
+     * Returns the number of ints that satisfy the provided condition.
+     */
+    public int count(IntPredicate condition) {
+        int count = 0;
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the sum of the ints as a long, which can't overflow.
+     */
+    public long sum() {
+        return ArrayKernels.sum(items, size);
+    }
+
+    /**
+     * Returns the lowest int, or null if there are none.
+     */
+    public Integer min() {
+        return size == 0 ? null : ArrayKernels.min(items, size);
+    }
+
+    /**
+     * Returns the highest int, or null if there are none.
+     */
+    public Integer max() {
+        return size == 0 ? null : ArrayKernels.max(items, size);
+    }
+
+    /**
+     * Returns the sum of the products of the ints at each position of this list and the other, exactly as a long.  The
+     * lists must be the same size and an ArithmeticException is thrown if the result overflows.
+     */
+    public long dot(IntQueryList other) {
+        if (other.size != size)
+            throw new RuntimeException("Dot product requires lists of the same size.");
+        return ArrayKernels.dot(items, other.items, size);
+    }
+
+    /**
+     * Returns the mean of the ints, or null if there are none.
+     */
+    public Double average() {
+        return size == 0 ? null : (double)sum() / size;
+    }
+
+    /**
+     * Returns the summary statistics of the ints, gathered in a single pass.
+     */
+    public QueryStatistics stats() {
+        QueryStatistics statistics = new QueryStatistics();
+        for (int i = 0; i < size; i++)
+            statistics.accept(items[i]);
+        return statistics;
+    }
+
+    //
+    // Conversion Methods
+    //
+
+    /**
+     * Returns the values boxed in a new QueryList.
+     */
+    public QueryList<Integer> toList() {
+        QueryList<Integer> list = new QueryList<Integer>();
+        list.ensureCapacity(size);
+        for (int i = 0; i < size; i++)
+            list.add(items[i]);
+        return list;
+    }
+
+    /**
+     * Returns a read-only ArrayCollection over a copy of the ints.
+     */
+    public ArrayCollection<Integer> toArrayCollection() {
+        return new ArrayCollection<Integer>(toIntArray());
+    }
+
+    @Override
+    public String toString() {
+        return "IntQueryList{size=" + size + ", values=" + super.toString() + "}";
+    }
+}
@@ -0,0 +1,129 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A static interval tree over items that each span the range from their low to their high value, both inclusive.  The
+ * items are sorted by their low value and each node of the implicit tree over that order records the highest high
+ * value beneath it, so the items overlapping a range are found in O(log n + matches) rather than by a scan.  Items
+ * whose low or high value is null span nothing and are never found.  Matches are returned in the order of the items
+ * the index was built from.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class IntervalIndex<R, S extends Comparable<S>> {
+    private List<R> items;
+    // the positions in items of the indexed items, sorted by low value.
+    private int[] positions;
+    private S[] lows;
+    private S[] highs;
+    // the highest high value within each subtree, stored at the subtree's middle position.
+    private S[] maxHighs;
+
+    public IntervalIndex(Iterable<R> items, Function<R, S> lowSelector, Function<R, S> highSelector) {
+        this.items = Query.from(items).toList();
+        List<Integer> spanning = new ArrayList<Integer>(this.items.size());
+        List<S> allLows = new ArrayList<S>(this.items.size());
+        List<S> allHighs = new ArrayList<S>(this.items.size());
+        for (int i = 0; i < this.items.size(); i++) {
+            R item = this.items.get(i);
+            S low = lowSelector.apply(item);
+            S high = highSelector.apply(item);
+            allLows.add(low);
+            allHighs.add(high);
+            if (low != null && high != null && low.compareTo(high) <= 0)
+                spanning.add(i);
+        }
+        spanning.sort((x, y) -> allLows.get(x).compareTo(allLows.get(y)));
+        int size = spanning.size();
+        positions = new int[size];
+        lows = newArray(size);
+        highs = newArray(size);
+        maxHighs = newArray(size);
+        for (int i = 0; i < size; i++) {
+            positions[i] = spanning.get(i);
+            lows[i] = allLows.get(positions[i]);
+            highs[i] = allHighs.get(positions[i]);
+        }
+        buildMaxHighs(0, size);
+    }
+
+    // S is always a Comparable, so an array of Comparable can stand in for an array of S.
+    @SuppressWarnings("unchecked")
+    private S[] newArray(int size) {
+        return (S[])new Comparable<?>[size];
+    }
+
+    /**
+     * Returns the number of items, including those that span nothing.
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns the items the index was built from, in their original order.
+     */
+    public List<R> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Returns the items whose range contains the provided value.
+     */
+    public List<R> containing(S value) {
+        return overlapping(value, value);
+    }
+
+    /**
+     * Returns the items whose range overlaps the range from low to high, both inclusive.
+     */
+    public List<R> overlapping(S low, S high) {
+        if (low == null || high == null || low.compareTo(high) > 0 || positions.length == 0)
+            return Collections.emptyList();
+        List<Integer> found = new ArrayList<Integer>();
+        find(0, positions.length, low, high, found);
+        if (found.isEmpty())
+            return Collections.emptyList();
+        Collections.sort(found);
+        List<R> matches = new ArrayList<R>(found.size());
+        for (int position : found)
+            matches.add(items.get(position));
+        return matches;
+    }
+
+    private S buildMaxHighs(int from, int to) {
+        if (from >= to)
+            return null;
+        int mid = (from + to) >>> 1;
+        S max = highs[mid];
+        S left = buildMaxHighs(from, mid);
+        S right = buildMaxHighs(mid + 1, to);
+        if (left != null && left.compareTo(max) > 0)
+            max = left;
+        if (right != null && right.compareTo(max) > 0)
+            max = right;
+        return maxHighs[mid] = max;
+    }
+
+    private void find(int from, int to, S low, S high, List<Integer> found) {
+        if (from >= to)
+            return;
+        int mid = (from + to) >>> 1;
+        // nothing beneath this node reaches up to the range.
+        if (maxHighs[mid].compareTo(low) < 0)
+            return;
+        find(from, mid, low, high, found);
+        // everything from here on starts above the range.
+        if (lows[mid].compareTo(high) > 0)
+            return;
+        if (highs[mid].compareTo(low) >= 0)
+            found.add(positions[mid]);
+        find(mid + 1, to, low, high, found);
+    }
+
+    @Override
+    public String toString() {
+        return "IntervalIndex{size=" + items.size() + "}";
+    }
+}
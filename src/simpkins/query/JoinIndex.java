@@ -0,0 +1,136 @@
+package simpkins.query;
+
+import simpkins.query.iterator.SelectManyIterator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A hash index of right items by key that is built once and then probed by any number of joins, group joins and
+ * whereIn() filters in place of the right items, rather than each of them collecting the right items again.  An index
+ * can be shared between threads.  Probes never block and each bucket they read is an immutable snapshot, so a probe
+ * never sees a half applied change.  Changes to the right items are applied either by patching the index with add()
+ * and remove() or by rebuilding it from its source with rebuild().  A join that runs while the index is being changed
+ * may see some of the changes and not others.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class JoinIndex<R, K> {
+    // ConcurrentHashMap doesn't allow null keys, so items with a null key are stored under this instead.
+    private static final Object NULL_KEY = new Object();
+
+    private Iterable<R> source;
+    private Function<R, K> keySelector;
+    private volatile ConcurrentHashMap<Object, List<R>> buckets;
+
+    /**
+     * Builds an index of the provided right items by the key obtained from the keySelector.  The items are kept as the
+     * source to rebuild from.
+     */
+    public JoinIndex(Iterable<R> items, Function<R, K> keySelector) {
+        this.source = Objects.requireNonNull(items);
+        this.keySelector = Objects.requireNonNull(keySelector);
+        rebuild();
+    }
+
+    public Function<R, K> getKeySelector() {
+        return keySelector;
+    }
+
+    /**
+     * Returns the items with the provided key in the order they were added.  The returned list cannot be modified and
+     * won't reflect later changes to the index.
+     */
+    public List<R> get(K key) {
+        List<R> bucket = buckets.get(mask(key));
+        return bucket != null ? bucket : Collections.<R>emptyList();
+    }
+
+    public boolean containsKey(K key) {
+        return buckets.containsKey(mask(key));
+    }
+
+    /**
+     * Returns the number of distinct keys.
+     */
+    public int keyCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns all the items in the index grouped by key.
+     */
+    public Query<R> items() {
+        return new Query<R>(() -> {
+            Iterator<List<R>> bucketIterator = buckets.values().iterator();
+            return new SelectManyIterator<List<R>, R>(bucketIterator, bucket -> bucket);
+        });
+    }
+
+    /**
+     * Patches the index with an item added to the right items.
+     */
+    public synchronized JoinIndex<R, K> add(R item) {
+        Object key = mask(keySelector.apply(item));
+        List<R> bucket = buckets.get(key);
+        List<R> updated = new ArrayList<R>(bucket != null ? bucket.size() + 1 : 1);
+        if (bucket != null)
+            updated.addAll(bucket);
+        updated.add(item);
+        buckets.put(key, Collections.unmodifiableList(updated));
+        return this;
+    }
+
+    /**
+     * Patches the index with items added to the right items.
+     */
+    public synchronized JoinIndex<R, K> addAll(Iterable<? extends R> items) {
+        for (R item : items)
+            add(item);
+        return this;
+    }
+
+    /**
+     * Patches the index with an item removed from the right items.  The first item in its bucket that equals it is
+     * removed.  Returns true if one was found.
+     */
+    public synchronized boolean remove(R item) {
+        Object key = mask(keySelector.apply(item));
+        List<R> bucket = buckets.get(key);
+        int position = bucket != null ? bucket.indexOf(item) : -1;
+        if (position == -1)
+            return false;
+        if (bucket.size() == 1) {
+            buckets.remove(key);
+            return true;
+        }
+        List<R> updated = new ArrayList<R>(bucket);
+        updated.remove(position);
+        buckets.put(key, Collections.unmodifiableList(updated));
+        return true;
+    }
+
+    /**
+     * Rebuilds the index from its source, for when the right items changed more than is worth patching.  Probes keep
+     * using the previous index until the new one is complete.
+     */
+    public synchronized JoinIndex<R, K> rebuild() {
+        Map<Object, List<R>> building = new HashMap<Object, List<R>>();
+        for (R item : source)
+            building.computeIfAbsent(mask(keySelector.apply(item)), k -> new ArrayList<R>(1)).add(item);
+        ConcurrentHashMap<Object, List<R>> rebuilt = new ConcurrentHashMap<Object, List<R>>(Math.max((int)(building.size() / .75f) + 1, 16));
+        for (Map.Entry<Object, List<R>> entry : building.entrySet())
+            rebuilt.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        buckets = rebuilt;
+        return this;
+    }
+
+    private static Object mask(Object key) {
+        return key != null ? key : NULL_KEY;
+    }
+
+    @Override
+    public String toString() {
+        return "JoinIndex{keys=" + buckets.size() + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package simpkins.query;
+
+/**
+ * The physical strategies a join by key selectors can run with.  Every strategy gives the same results in the same
+ * order as the nested loop: each left item in turn with its matches in right order, followed by the unmatched right
+ * items of a right or outer join.  They differ only in cost.  AUTO, the default, picks one from the sizes of both
+ * sides at the time the join runs.  Any other strategy can be forced through withJoinStrategy().
+ */
+public enum JoinStrategy {
+    /**
+     * Chooses from the sizes of both sides when the join runs.  A maintained index of the right items is used if there
+     * is one.  A tiny known right side is looped over.  Otherwise the hash table is built from the left side when it
+     * is known to be smaller than the right side or the right side's size is unknown, and from the right side when it
+     * isn't.
+     */
+    AUTO,
+    /**
+     * Compares every left item with every right item.  Only worthwhile when one side is tiny.
+     */
+    NESTED_LOOP,
+    /**
+     * Builds a hash table of the right items and streams the left items through it.
+     */
+    HASH_BUILD_RIGHT,
+    /**
+     * Builds a hash table of the left items and streams the right items through it once, holding the matches of each
+     * left item until the right items are exhausted.
+     */
+    HASH_BUILD_LEFT,
+    /**
+     * Sorts both sides by key and merges them.  The keys must be Comparable and are matched by compareTo() rather than
+     * equals(), with null keys sorted first and matching each other.
+     */
+    SORT_MERGE,
+    /**
+     * Probes the QueryIndex maintained by a QueryList or QuerySet of right items for the rightSelector.  Falls back to
+     * the AUTO choice when there is no such index.
+     */
+    INDEX
+}
@@ -0,0 +1,369 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * LongQueryList is a growable list of longs held in a primitive array rather than as boxed Longs, so it takes less than
+ * half the memory of a QueryList of the same values.  It is a List of Longs like any other and boxes each value
+ * as it is read that way, but where(), select(), orderBy(), distinct() and the aggregates work on the array directly.
+ * The rest of the Query methods are reached through query().  Null can't be stored.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class LongQueryList extends AbstractList<Long> implements RandomAccess {
+    private static final long[] EMPTY = {};
+
+    private long[] items;
+    private int size;
+
+    //
+    // Constructors
+    //
+
+    public LongQueryList() {
+        items = EMPTY;
+    }
+
+    public LongQueryList(long... items) {
+        this.items = items.clone();
+        size = items.length;
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the LongQueryList.
+    public LongQueryList(Iterable<Long> items) {
+        this.items = EMPTY;
+        for (Long item : items)
+            addLong(item);
+    }
+
+    public LongQueryList(Collection<Long> items) {
+        this.items = new long[items.size()];
+        for (Long item : items)
+            addLong(item);
+    }
+
+    //
+    // Static Constructors
+    //
+
+    public static LongQueryList of(long... items) {
+        return new LongQueryList(items);
+    }
+
+    // This constructor can be inefficient if the iterable is very large due to the inability to set an initial
+    // capacity for the LongQueryList.
+    public static LongQueryList of(Iterable<Long> items) {
+        return new LongQueryList(items);
+    }
+
+    public static LongQueryList of(Collection<Long> items) {
+        return new LongQueryList(items);
+    }
+
+    public static LongQueryList initialCapacity(int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Illegal Capacity: " + value);
+        LongQueryList list = new LongQueryList();
+        list.items = new long[value];
+        return list;
+    }
+
+    //
+    // List Methods
+    //
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, Long value) {
+        return setLong(index, value);
+    }
+
+    @Override
+    public void add(int index, Long value) {
+        if (index < 0 || index > size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        long item = value;
+        grow(size + 1);
+        System.arraycopy(items, index, items, index + 1, size - index);
+        items[index] = item;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Long remove(int index) {
+        long removed = getLong(index);
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //
+    // Primitive Methods
+    //
+
+    /**
+     * Returns the long at the provided index without boxing it.
+     */
+    public long getLong(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return items[index];
+    }
+
+    /**
+     * Replaces the long at the provided index and returns the one it replaced.
+     */
+    public long setLong(int index, long value) {
+        long previous = getLong(index);
+        items[index] = value;
+        return previous;
+    }
+
+    /**
+     * Appends the provided long without boxing it.
+     */
+    public LongQueryList addLong(long value) {
+        grow(size + 1);
+        items[size++] = value;
+        modCount++;
+        return this;
+    }
+
+    /**
+     * Appends the provided longs.
+     */
+    public LongQueryList addAll(long... values) {
+        grow(size + values.length);
+        System.arraycopy(values, 0, items, size, values.length);
+        size += values.length;
+        modCount++;
+        return this;
+    }
+
+    public boolean containsLong(long value) {
+        for (int i = 0; i < size; i++)
+            if (items[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the longs as a new array.
+     */
+    public long[] toLongArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    public void ensureCapacity(int capacity) {
+        grow(capacity);
+    }
+
+    public void trimToSize() {
+        if (items.length > size)
+            items = Arrays.copyOf(items, size);
+    }
+
+    private void grow(int capacity) {
+        if (capacity > items.length)
+            items = Arrays.copyOf(items, Math.max(capacity, Math.max(items.length + (items.length >> 1), 10)));
+    }
+
+    //
+    // Query Methods
+    //
+
+    /**
+     * Returns a Query over the boxed values, for the Query methods that LongQueryList doesn't provide itself.
+     */
+    public Query<Long> query() {
+        return Query.from(this);
+    }
+
+    /**
+     * Returns the longs that satisfy the provided comparison as a new LongQueryList.  The comparison is run as a tight
+     * loop over the array rather than tested against each value in turn.
+     */
+    public LongQueryList where(Comparison<Long> comparison) {
+        LongQueryList result = new LongQueryList();
+        result.items = ArrayKernels.filter(items, size, comparison);
+        result.size = result.items.length;
+        return result;
+    }
+
+    /**
+     * Returns the longs that satisfy the provided condition as a new LongQueryList.  Unlike Query.where() the result is
+     * computed immediately.
+     */
+    public LongQueryList where(LongPredicate condition) {
+        LongQueryList result = new LongQueryList();
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                result.addLong(items[i]);
+        return result;
+    }
+
+    /**
+     * Returns the projection of each long as a new LongQueryList.  Unlike Query.select() the result is computed
+     * immediately.
+     */
+    public LongQueryList select(LongUnaryOperator selector) {
+        LongQueryList result = initialCapacity(size);
+        for (int i = 0; i < size; i++)
+            result.items[i] = selector.applyAsLong(items[i]);
+        result.size = size;
+        return result;
+    }
+
+    /**
+     * Returns the longs in ascending order as a new LongQueryList.
+     */
+    public LongQueryList orderBy() {
+        LongQueryList result = new LongQueryList(toLongArray());
+        Arrays.sort(result.items);
+        return result;
+    }
+
+    /**
+     * Returns the longs in descending order as a new LongQueryList.
+     */
+    public LongQueryList orderByDescending() {
+        LongQueryList result = orderBy();
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long swap = result.items[i];
+            result.items[i] = result.items[j];
+            result.items[j] = swap;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct longs in the order they first appear as a new LongQueryList.  The longs are sorted to find
+     * the distinct values rather than hashed, so no boxing or hash table is needed.
+     */
+    public LongQueryList distinct() {
+        long[] sorted = toLongArray();
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++)
+            if (unique == 0 || sorted[i] != sorted[unique - 1])
+                sorted[unique++] = sorted[i];
+        boolean[] isSeen = new boolean[unique];
+        LongQueryList result = initialCapacity(unique);
+        for (int i = 0; i < size; i++) {
+            int position = Arrays.binarySearch(sorted, 0, unique, items[i]);
+            if (!isSeen[position]) {
+                isSeen[position] = true;
+                result.items[result.size++] = items[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of longs that satisfy the provided comparison, run as a tight loop over the array.
+     */
+    public int count(Comparison<Long> comparison) {
+        return ArrayKernels.count(items, size, comparison);
+    }
+
+    /**
+     * Returns the number of longs that satisfy the provided condition.
+     */
+    public int count(LongPredicate condition) {
+        int count = 0;
+        for (int i = 0; i < size; i++)
+            if (condition.test(items[i]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Returns the sum of the longs.  An ArithmeticException is thrown if the sum overflows.
+     */
+    public long sum() {
+        return ArrayKernels.sumExact(items, size);
+    }
+
+    /**
+     * Returns the lowest long, or null if there are none.
+     */
+    public Long min() {
+        return size == 0 ? null : ArrayKernels.min(items, size);
+    }
+
+    /**
+     * Returns the highest long, or null if there are none.
+     */
+    public Long max() {
+        return size == 0 ? null : ArrayKernels.max(items, size);
+    }
+
+    /**
+     * Returns the mean of the longs, or null if there are none.
+     */
+    public Double average() {
+        if (size == 0)
+            return null;
+        // summed as doubles, so that an average of longs whose sum overflows can still be found.
+        double sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += items[i];
+        return sum / size;
+    }
+
+    /**
+     * Returns the summary statistics of the longs, gathered in a single pass.
+     */
+    public QueryStatistics stats() {
+        QueryStatistics statistics = new QueryStatistics();
+        for (int i = 0; i < size; i++)
+            statistics.accept(items[i]);
+        return statistics;
+    }
+
+    //
+    // Conversion Methods
+    //
+
+    /**
+     * Returns the values boxed in a new QueryList.
+     */
+    public QueryList<Long> toList() {
+        QueryList<Long> list = new QueryList<Long>();
+        list.ensureCapacity(size);
+        for (int i = 0; i < size; i++)
+            list.add(items[i]);
+        return list;
+    }
+
+    /**
+     * Returns a read-only ArrayCollection over a copy of the longs.
+     */
+    public ArrayCollection<Long> toArrayCollection() {
+        return new ArrayCollection<Long>(toLongArray());
+    }
+
+    @Override
+    public String toString() {
+        return "LongQueryList{size=" + size + ", values=" + super.toString() + "}";
+    }
+}
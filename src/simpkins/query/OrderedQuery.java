@@ -17,8 +17,17 @@ public class OrderedQuery<T> extends Query<T> {
         this(sizeSupplier, sourceReset, preOrderingSource, Arrays.asList(orderings));
     }
 
+    // When the first ordering can supply the source already in its order, with only the one ordering there is no sort
+    // at all.  Sub-orderings still sort, but the stable sort for the first ordering then runs over input that is
+    // already in order.
     protected OrderedQuery(Supplier<Integer> sizeSupplier, Consumer<Iterable> sourceReset, Iterable<T> preOrderingSource, List<Ordering<T, ? extends Comparable<?>>> orderings) {
-        super(sizeSupplier, sourceReset, () -> new OrderByIterator<T>(preOrderingSource.iterator(), orderings, sizeSupplier.get()));
+        super(sizeSupplier, sourceReset, () -> {
+            Supplier<Iterator<T>> presortedSource = orderings.get(0).getPresortedSource();
+            Iterator<T> presorted = presortedSource != null ? presortedSource.get() : null;
+            if (presorted != null && orderings.size() == 1)
+                return presorted;
+            return new OrderByIterator<T>(presorted != null ? presorted : preOrderingSource.iterator(), orderings, sizeSupplier.get());
+        });
         this.preOrderingSource = preOrderingSource;
         this.orderings = orderings;
     }
@@ -47,6 +56,20 @@ public class OrderedQuery<T> extends Query<T> {
         return stackOrdering(new Ordering<T, S>(comparator, true));
     }
 
+    /**
+     * Returns a Spliterator over the ordered result, reported as SORTED by the orderings.  The result has to be sorted
+     * in full before the first item anyway, so it is collected into a list that is then split evenly.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        QueryList<T> sorted = toList();
+        Comparator<T> comparator = null;
+        for (Ordering<T, ? extends Comparable<?>> ordering : orderings)
+            comparator = comparator == null ? ordering.toComparator() : comparator.thenComparing(ordering.toComparator());
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        return new QuerySpliterator<T>(sorted, 0, sorted.size(), null, characteristics, comparator);
+    }
+
     private <S extends Comparable<S>> OrderedQuery<T> stackOrdering(Ordering<T, S> newOrdering) {
         return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), preOrderingSource, from(orderings).combine(newOrdering).toList());
     }
@@ -1,13 +1,18 @@
 package simpkins.query;
 
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Ordering<T, S extends Comparable<S>> {
     private Function<T, Comparable> selector;
     private Comparator<T> comparator;
     private boolean isDescending;
     private boolean reverseNulls;
+    // Supplies the source already in this ordering, or null when it can't at the time, such as from a sorted index on
+    // the source.  Only the first ordering of an OrderedQuery is asked.
+    private Supplier<Iterator<T>> presortedSource;
 
     Ordering(boolean isDescending, boolean reverseNulls) {
         this.isDescending = isDescending;
@@ -38,11 +43,20 @@ public class Ordering<T, S extends Comparable<S>> {
         this.reverseNulls = reverseNulls;
     }
 
+    Ordering(Function<T, S> selector, boolean isDescending, boolean reverseNulls, Supplier<Iterator<T>> presortedSource) {
+        this(selector, isDescending, reverseNulls);
+        this.presortedSource = presortedSource;
+    }
+
     Ordering(Comparator<T> comparator, boolean isDescending) {
         this.comparator = comparator;
         this.isDescending = isDescending;
     }
 
+    Supplier<Iterator<T>> getPresortedSource() {
+        return presortedSource;
+    }
+
     public Comparator<T> toComparator() {
         if (comparator != null)
             return !isDescending ? comparator : new Comparator<T>() {
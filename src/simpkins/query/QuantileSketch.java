@@ -0,0 +1,221 @@
+package simpkins.query;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A KLL sketch that estimates quantiles of a stream of values in a small, bounded amount of memory.  Values are kept
+ * in a stack of compactors where each level holds items that stand for 2^level of the original values.  When the
+ * sketch fills, a level is sorted and every other item is promoted to the level above, so memory grows only with the
+ * logarithm of the count.  With the default k of 200 the rank error is typically under 1%.  The exact count, min and
+ * max are always kept, and sketches can be merged so quantiles can be taken across separate partitions.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+public class QuantileSketch {
+    public static final int DEFAULT_K = 200;
+    // the ratio by which each compactor's capacity shrinks moving down from the top level.
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+
+    private int k;
+    private double[][] levels = new double[1][];
+    private int[] sizes = new int[1];
+    // the capacity of each level and their total, recomputed only when a level is added.
+    private int[] capacities = new int[1];
+    private int totalCapacity;
+    private int retained = 0;
+    private long count = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private Random random = new Random();
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < 8)
+            throw new RuntimeException("QuantileSketch k cannot be less than 8.");
+        this.k = k;
+        levels[0] = new double[k];
+        updateCapacities();
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Returns the lowest value added, or NaN if the sketch is empty.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Returns the highest value added, or NaN if the sketch is empty.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Adds a value to the sketch.  NaN values are ignored.
+     */
+    public QuantileSketch add(double value) {
+        if (Double.isNaN(value))
+            return this;
+        if (count == 0 || value < min)
+            min = value;
+        if (count == 0 || value > max)
+            max = value;
+        count++;
+        append(0, value);
+        compress();
+        return this;
+    }
+
+    /**
+     * Folds the provided sketch into this one so that this sketch describes the values added to either.
+     */
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.count == 0)
+            return this;
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        for (int level = 0; level < other.levels.length; level++)
+            for (int i = 0; i < other.sizes[level]; i++)
+                append(level, other.levels[level][i]);
+        compress();
+        return this;
+    }
+
+    /**
+     * Returns the estimated value at the provided quantile, which must be between 0 and 1.  Returns NaN if the sketch
+     * is empty.
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1)
+            throw new RuntimeException("QuantileSketch quantile must be between 0 and 1.");
+        if (count == 0)
+            return Double.NaN;
+        if (quantile == 0)
+            return min;
+        if (quantile == 1)
+            return max;
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int index = 0;
+        for (int level = 0; level < levels.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                values[index] = levels[level][i];
+                weights[index++] = 1L << level;
+            }
+        }
+        Integer[] order = new Integer[retained];
+        for (int i = 0; i < retained; i++)
+            order[i] = i;
+        Arrays.sort(order, (x, y) -> Double.compare(values[x], values[y]));
+        double target = quantile * count;
+        long weight = 0;
+        for (int i : order) {
+            weight += weights[i];
+            if (weight >= target)
+                return values[i];
+        }
+        return max;
+    }
+
+    /**
+     * Returns the estimated value at the provided percentile, which must be between 0 and 100.
+     */
+    public double percentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new RuntimeException("QuantileSketch percentile must be between 0 and 100.");
+        return quantile(percentile / 100);
+    }
+
+    /**
+     * Returns the estimated fraction of the values added that are less than or equal to the provided value.
+     */
+    public double rank(double value) {
+        if (count == 0)
+            return Double.NaN;
+        long weight = 0;
+        for (int level = 0; level < levels.length; level++)
+            for (int i = 0; i < sizes[level]; i++)
+                if (levels[level][i] <= value)
+                    weight += 1L << level;
+        return (double)weight / count;
+    }
+
+    private void updateCapacities() {
+        capacities = new int[levels.length];
+        totalCapacity = 0;
+        for (int level = 0; level < levels.length; level++) {
+            int depth = levels.length - 1 - level;
+            capacities[level] = Math.max(2, (int)Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+            totalCapacity += capacities[level];
+        }
+    }
+
+    // a merge can append past the top level by more than one, since the other sketch may have grown deeper.
+    private void append(int level, double value) {
+        if (level >= levels.length) {
+            int levelCount = levels.length;
+            levels = Arrays.copyOf(levels, level + 1);
+            sizes = Arrays.copyOf(sizes, level + 1);
+            updateCapacities();
+            for (int added = levelCount; added <= level; added++)
+                levels[added] = new double[capacities[added]];
+        }
+        if (sizes[level] == levels[level].length)
+            levels[level] = Arrays.copyOf(levels[level], Math.max(2, sizes[level] * 2));
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    // compacts the lowest full level until the sketch fits within its total capacity again.
+    private void compress() {
+        while (retained > totalCapacity) {
+            for (int level = 0; level < levels.length; level++) {
+                if (sizes[level] >= capacities[level]) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    // sorts the level and promotes every other item, starting from a random offset, to the level above at double the
+    // weight.  The random offset keeps the estimated ranks unbiased.  With an odd count the lowest item stays behind.
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int kept = size % 2;
+        double leftover = items[0];
+        int offset = kept + (random.nextBoolean() ? 1 : 0);
+        sizes[level] = 0;
+        retained -= size;
+        for (int i = offset; i < size; i += 2)
+            append(level + 1, items[i]);
+        if (kept == 1) {
+            items[sizes[level]++] = leftover;
+            retained++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{count=" + count + ", min=" + min + ", max=" + max + "}";
+    }
+}
@@ -2,11 +2,14 @@ package simpkins.query;
 
 import simpkins.query.iterator.*;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
 import java.util.function.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Query is an Iterable that wraps an Iterable (or array) as its source and provides a variety of methods to manipulate
@@ -49,6 +52,87 @@ public class Query<T> implements Iterable<T> {
         return sizeSupplier;
     }
 
+    // Operators with an unpredictable size that can produce no more items than their input, such as filters, are
+    // given a SizeBound as their sizeSupplier.  It still reports the exact size as unknown, but keeps the upper bound
+    // of the input and any estimate hinted by the user.  Operators that preserve their size pass the same
+    // sizeSupplier down, so the bound carries on through them.  The bound is only ever used to presize buffers and
+    // hash tables.
+    private Supplier<Integer> getBoundedSize() {
+        return new SizeBound(unknownSize, this::getUpperBound, null);
+    }
+
+    // Returns the most items the query can produce, or null if there's no telling.
+    private Integer getUpperBound() {
+        Supplier<Integer> sizeSupplier = getSizeSupplier();
+        Integer size = sizeSupplier.get();
+        if (size != null || !(sizeSupplier instanceof SizeBound))
+            return size;
+        return ((SizeBound)sizeSupplier).upperBound.get();
+    }
+
+    // Returns the capacity to presize a buffer or hash table for the query's items with, or null to leave it at its
+    // default.  An upper bound alone is capped, since a selective filter over a large input would otherwise allocate
+    // for items it never produces.  A hinted estimate is trusted up to the upper bound, or up to the same cap when
+    // there is no upper bound, so that an outsized hint can't allocate more than the query could ever fill.
+    private Integer getPresize() {
+        Supplier<Integer> sizeSupplier = getSizeSupplier();
+        Integer size = sizeSupplier.get();
+        if (size != null || !(sizeSupplier instanceof SizeBound))
+            return size;
+        SizeBound bound = (SizeBound)sizeSupplier;
+        Integer hinted = bound.hint != null ? bound.hint.get() : null;
+        Integer upperBound = bound.upperBound.get();
+        if (hinted != null)
+            return Math.min(hinted, upperBound != null ? upperBound : PRESIZE_LIMIT);
+        return upperBound != null ? Math.min(upperBound, PRESIZE_LIMIT) : null;
+    }
+
+    /**
+     * Returns the exact size of the query if it is known without iterating, otherwise an estimate of it: the size
+     * hinted through hintSize() or hintSelectivity(), or else the most items the query can produce.  Returns null if
+     * there's no telling.
+     */
+    public Integer estimateSize() {
+        Supplier<Integer> sizeSupplier = getSizeSupplier();
+        Integer size = sizeSupplier.get();
+        if (size != null || !(sizeSupplier instanceof SizeBound))
+            return size;
+        SizeBound bound = (SizeBound)sizeSupplier;
+        Integer hinted = bound.hint != null ? bound.hint.get() : null;
+        return hinted != null ? hinted : bound.upperBound.get();
+    }
+
+    /**
+     * Hints that the query produces about the provided number of items.  The hint is only used to presize the buffers
+     * and hash tables that collect the items, and has no effect when the exact size is known.
+     */
+    public Query<T> hintSize(int estimate) {
+        if (estimate < 0)
+            throw new RuntimeException("Size hint cannot be less than zero.");
+        return hinted(new SizeBound(getSizeSupplier(), this::getUpperBound, () -> estimate));
+    }
+
+    /**
+     * Hints that the query, typically a filter, produces about the provided fraction of the most items it could.  The
+     * hint is only used to presize the buffers and hash tables that collect the items, and has no effect when the
+     * exact size is known.
+     */
+    public Query<T> hintSelectivity(double selectivity) {
+        if (!(selectivity >= 0 && selectivity <= 1))
+            throw new RuntimeException("Selectivity hint must be between 0 and 1.");
+        return hinted(new SizeBound(getSizeSupplier(), this::getUpperBound, () -> {
+            Integer upperBound = getUpperBound();
+            return upperBound != null ? (int)Math.ceil(upperBound * selectivity) : null;
+        }));
+    }
+
+    private Query<T> hinted(SizeBound sizeBound) {
+        Query<T> hinted = new Query<T>(sizeBound, getSourceReset(), () -> iterator());
+        hinted.joinStrategy = joinStrategy;
+        hinted.joinStrategyListener = joinStrategyListener;
+        return subset(hinted);
+    }
+
     //
     // Late source assignment
     //
@@ -86,6 +170,176 @@ public class Query<T> implements Iterable<T> {
         return this;
     }
 
+    //
+    // Join strategy
+    //
+
+    // The strategy hint and listener for the joins by key selectors called on this query.  They are set on a copy of
+    // the query through withJoinStrategy() and onJoinStrategy() rather than passed down the chain, so a hint only
+    // applies to the joins it was given for.
+    protected JoinStrategy joinStrategy = JoinStrategy.AUTO;
+    protected Consumer<JoinStrategy> joinStrategyListener = null;
+
+    /**
+     * Returns this query with the provided strategy forced onto the joins by key selectors called on it, in place of
+     * the strategy they would choose from the sizes of both sides.
+     */
+    public Query<T> withJoinStrategy(JoinStrategy strategy) {
+        Query<T> hinted = new Query<T>(getSizeSupplier(), getSourceReset(), () -> iterator());
+        hinted.joinStrategy = Objects.requireNonNull(strategy);
+        hinted.joinStrategyListener = joinStrategyListener;
+        return hinted;
+    }
+
+    /**
+     * Returns this query with the provided listener told the strategy of each join by key selectors called on it
+     * whenever the join runs.
+     */
+    public Query<T> onJoinStrategy(Consumer<JoinStrategy> listener) {
+        Query<T> observed = new Query<T>(getSizeSupplier(), getSourceReset(), () -> iterator());
+        observed.joinStrategy = joinStrategy;
+        observed.joinStrategyListener = Objects.requireNonNull(listener);
+        return observed;
+    }
+
+    //
+    // Array kernels
+    //
+
+    // A query over an int[], long[] or double[], or a where() by a Comparison directly on one, has its count(), sum(),
+    // min() and max() run by ArrayKernels over the array instead of iterating boxed items.  The filtered query keeps
+    // its root rather than the array so that a root given a new source through fromThis() is seen.
+    private Query<T> kernelRoot = null;
+    private Comparison<?> kernelFilter = null;
+
+    // Returns the array to run the kernels over, or null if the kernels don't apply to this query.
+    private Object getKernelArray() {
+        Iterable<?> rootSource = kernelRoot != null ? kernelRoot.source : kernelFilter == null ? source : null;
+        return rootSource instanceof ArrayCollection ? ((ArrayCollection<?>)rootSource).getKernelArray() : null;
+    }
+
+    //
+    // Compilation
+    //
+
+    // Set on a query made by where() or select(): the query the stage reads from, and its Predicate or Function.
+    // compile() follows these back to fuse the run of stages ending at the query it is called on.
+    private Query<?> stageInput = null;
+    private Object stage = null;
+    private boolean isFilterStage = false;
+
+    private <S> Query<S> staged(Query<S> query, Object stage, boolean isFilter) {
+        query.stageInput = this;
+        query.stage = stage;
+        query.isFilterStage = isFilter;
+        return query;
+    }
+
+    /**
+     * Returns the query with the run of where() and select() calls it ends with fused into a single step.  Chained
+     * operators each hold their lambda behind a shared interface, so once a program has run enough different lambdas
+     * through the same operator its calls can no longer be inlined.  The compiled query calls each lambda through a
+     * handle of its own that the JVM can specialize to it, and hands each item through one step rather than an
+     * iterator per operator.  The combinators are cached by the order of where() and select() calls, so compiling
+     * another query of the same shape only binds its lambdas.  Operators before the run are iterated as usual, and
+     * a query that doesn't end in where() or select() is returned as is.  A where() by a QueryIndex lookup or a
+     * Comparison also ends the run, so that it keeps its index or array kernel.  Compiling is worth it for queries
+     * that are kept and run repeatedly.
+     */
+    public Query<T> compile() {
+        List<Object> stages = new ArrayList<Object>();
+        List<Boolean> isFilter = new ArrayList<Boolean>();
+        Query<?> base = collectStages(stages, isFilter);
+        if (stages.isEmpty())
+            return this;
+        MethodHandle fused = QueryCompiler.compile(stages, isFilter);
+        Query<T> compiled = new Query<T>(getSizeSupplier(), getSourceReset(), () -> new FusedIterator<T>(base.iterator(), fused, QueryCompiler.SKIP));
+        compiled.joinStrategy = joinStrategy;
+        compiled.joinStrategyListener = joinStrategyListener;
+        return compiled;
+    }
+
+    // Fills in the stages of the run of where() and select() calls ending at this query, in order, and returns the
+    // query the run reads from.
+    private Query<?> collectStages(List<Object> stages, List<Boolean> isFilter) {
+        Query<?> input = this;
+        while (input.stage != null) {
+            stages.add(0, input.stage);
+            isFilter.add(0, input.isFilterStage);
+            input = input.stageInput;
+        }
+        return input;
+    }
+
+    //
+    // Streams
+    //
+
+    // Set on a query made by an operator that only drops items, such as where() or take(), to the query it drops them
+    // from, so that it can report the same items as distinct.
+    private Query<T> subsetOf = null;
+    // Set on a query made by distinct() without a selector, since items distinct by a selector can still be equal.
+    private boolean isDistinct = false;
+
+    private Query<T> subset(Query<T> query) {
+        query.subsetOf = this;
+        return query;
+    }
+
+    // Returns true if no two items are equal.
+    private boolean isDistinct() {
+        if (isDistinct || source instanceof Set)
+            return true;
+        if (source instanceof Query)
+            return ((Query<?>)source).isDistinct();
+        return subsetOf != null && subsetOf.isDistinct();
+    }
+
+    /**
+     * Returns a Spliterator over the query result.  A query straight over a collection uses the collection's own
+     * spliterator.  One over an array or a random access list, or over where() and select() calls chained onto one,
+     * splits the source evenly by index so that a parallel stream can share it out, and knows the exact size of each
+     * split unless there's a where() among the calls.  Any other query is handed out from its iterator in batches,
+     * sized if the size of the query is known.  The result is reported as ORDERED, and as DISTINCT after distinct() or
+     * over a set.  An OrderedQuery is also reported as SORTED.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        if (source instanceof Collection && !(source instanceof ArrayCollection))
+            //noinspection unchecked
+            return ((Collection<T>)source).spliterator();
+        int characteristics = Spliterator.ORDERED | (isDistinct() ? Spliterator.DISTINCT : 0);
+        List<Object> stages = new ArrayList<Object>();
+        List<Boolean> isFilter = new ArrayList<Boolean>();
+        Query<?> base = collectStages(stages, isFilter);
+        List<?> items = base.source instanceof ArrayCollection ? ((ArrayCollection<?>)base.source).asList() : base.source instanceof List && base.source instanceof RandomAccess ? (List<?>)base.source : null;
+        if (items != null) {
+            MethodHandle fused = stages.isEmpty() ? null : QueryCompiler.compile(stages, isFilter);
+            if (!isFilter.contains(true))
+                characteristics |= Spliterator.SIZED | Spliterator.SUBSIZED;
+            return new QuerySpliterator<T>(items, 0, items.size(), fused, characteristics, null);
+        }
+        Integer size = getSizeSupplier().get();
+        if (size != null)
+            return Spliterators.spliterator(iterator(), size, characteristics);
+        return Spliterators.spliteratorUnknownSize(iterator(), characteristics);
+    }
+
+    /**
+     * Returns a sequential Stream over the query result.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel Stream over the query result.  Only a query that spliterator() can split evenly is worth
+     * running in parallel.
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     //
     // Constructors
     //
@@ -221,7 +475,18 @@ public class Query<T> implements Iterable<T> {
      * Filters the source down to only items where the provided condition is true.
      */
     public Query<T> where(Predicate<T> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new WhereIterator<T>(iterator(), condition));
+        if (condition instanceof QueryIndex.Lookup) {
+            // an index lookup over the root source stands in for scanning it.
+            QueryIndex.Lookup<?, T> lookup = (QueryIndex.Lookup<?, T>)condition;
+            return subset(new Query<T>(getBoundedSize(), getSourceReset(), () -> lookup.isOver(source) ? lookup.iterator() : new WhereIterator<T>(iterator(), condition)));
+        }
+        if (condition instanceof Comparison && kernelRoot == null && source instanceof ArrayCollection) {
+            Query<T> compared = new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), condition));
+            compared.kernelRoot = this;
+            compared.kernelFilter = (Comparison<?>)condition;
+            return subset(compared);
+        }
+        return staged(subset(new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), condition))), condition, true);
     }
 
     /**
@@ -229,7 +494,7 @@ public class Query<T> implements Iterable<T> {
      * source is included to be used in the condition.
      */
     public Query<T> whereByIndex(BiPredicate<T, Integer> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new WhereIterator<T>(iterator(), new Predicate<T>() {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), new Predicate<T>() {
             int i = 0;
             public boolean test(T t) {
                 return condition.test(t, i++);
@@ -243,7 +508,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> whereByContext(BiPredicate<T, QueryContext<T>> condition) {
         QueryContextController<T> contextController = new QueryContextController<>(iterator());
-        return new Query<T>(unknownSize, getSourceReset(), () -> new WhereIterator<T>(contextController, t -> condition.test(t, contextController)));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(contextController, t -> condition.test(t, contextController)));
     }
 
     /**
@@ -259,7 +524,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> whereIn(Iterable<? extends T> container) {
         Objects.requireNonNull(container);
-        return new Query<T>(unknownSize, getSourceReset(), () -> new WhereInIterator<T, T>(iterator(), container, selectSelf, true));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereInIterator<T, T>(iterator(), container, selectSelf, true));
     }
 
     /**
@@ -275,7 +540,45 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> whereNotIn(Iterable<? extends T> container) {
         Objects.requireNonNull(container);
-        return new Query<T>(unknownSize, getSourceReset(), () -> new WhereInIterator<T, T>(iterator(), container, selectSelf, false));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereInIterator<T, T>(iterator(), container, selectSelf, false));
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided selector is a key in the provided
+     * JoinIndex.
+     */
+    public <K> Query<T> whereIn(JoinIndex<?, K> index, Function<T, K> selector) {
+        Objects.requireNonNull(index);
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), t -> index.containsKey(selector.apply(t))));
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided selector is not a key in the provided
+     * JoinIndex.
+     */
+    public <K> Query<T> whereNotIn(JoinIndex<?, K> index, Function<T, K> selector) {
+        Objects.requireNonNull(index);
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), t -> !index.containsKey(selector.apply(t))));
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided leftKey equals the projection of the
+     * provided rightKey for any of the rightItems, which may be of another type.  The keys of the rightItems are
+     * collected into a hash set once, so each item is checked with a single lookup.
+     */
+    public <R, K> Query<T> whereExists(Iterable<R> rightItems, Function<T, K> leftKey, Function<R, K> rightKey) {
+        Objects.requireNonNull(rightItems);
+        return new Query<T>(getSemiJoinSupplier(rightItems, true), getSourceReset(), () -> new WhereInIterator<T, K>(iterator(), rightItems, leftKey, rightKey, true));
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided leftKey does not equal the projection of
+     * the provided rightKey for any of the rightItems, which may be of another type.  The keys of the rightItems are
+     * collected into a hash set once, so each item is checked with a single lookup.
+     */
+    public <R, K> Query<T> whereNotExists(Iterable<R> rightItems, Function<T, K> leftKey, Function<R, K> rightKey) {
+        Objects.requireNonNull(rightItems);
+        return new Query<T>(getSemiJoinSupplier(rightItems, false), getSourceReset(), () -> new WhereInIterator<T, K>(iterator(), rightItems, leftKey, rightKey, false));
     }
 
     /**
@@ -283,7 +586,7 @@ public class Query<T> implements Iterable<T> {
      */
     public <S> Query<S> ofType(Class<S> type) {
         Objects.requireNonNull(type);
-        return new Query<S>(unknownSize, getSourceReset(), () -> {
+        return new Query<S>(getBoundedSize(), getSourceReset(), () -> {
             WhereIterator<T> whereIterator = new WhereIterator<T>(iterator(), t -> type.isInstance(t));
             return new SelectIterator<T, S>(whereIterator, t -> type.cast(t));
         });
@@ -300,12 +603,12 @@ public class Query<T> implements Iterable<T> {
     public Query<T> skip(int amount) {
         if (amount < 0)
             throw new RuntimeException("Skip amount cannot be less than zero.");
-        return new Query<T>(getPartitioningSupplier(0, amount - 1, false), getSourceReset(), () -> new SkipIterator<T>(iterator(), new Predicate<T>() {
+        return subset(new Query<T>(getPartitioningSupplier(0, amount - 1, false), getSourceReset(), () -> new SkipIterator<T>(iterator(), new Predicate<T>() {
             int i = 0;
             public boolean test(T t) {
                 return amount > i++;
             }
-        }));
+        })));
     }
 
     /**
@@ -313,7 +616,7 @@ public class Query<T> implements Iterable<T> {
      * not true.  That item and all subsequent items (if any) are retained.
      */
     public Query<T> skipWhile(Predicate<T> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new SkipIterator<T>(iterator(), condition));
+        return subset(new Query<T>(getBoundedSize(), getSourceReset(), () -> new SkipIterator<T>(iterator(), condition)));
     }
 
     /**
@@ -322,7 +625,7 @@ public class Query<T> implements Iterable<T> {
      * included to be used in the condition.
      */
     public Query<T> skipWhileByIndex(BiPredicate<T, Integer> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new SkipIterator<T>(iterator(), new Predicate<T>() {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new SkipIterator<T>(iterator(), new Predicate<T>() {
             int i = 0;
             public boolean test(T t) {
                 return condition.test(t, i++);
@@ -337,7 +640,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> skipWhileByContext(BiPredicate<T, QueryContext<T>> condition) {
         QueryContextController<T> contextController = new QueryContextController<>(iterator());
-        return new Query<T>(unknownSize, getSourceReset(), () -> new SkipIterator<T>(contextController, t -> condition.test(t, contextController)));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new SkipIterator<T>(contextController, t -> condition.test(t, contextController)));
     }
 
     /**
@@ -348,12 +651,12 @@ public class Query<T> implements Iterable<T> {
     public Query<T> take(int amount) {
         if (amount < 0)
             throw new RuntimeException("Take amount cannot be less than zero.");
-        return new Query<T>(getPartitioningSupplier(0, amount - 1, true), getSourceReset(), () -> new TakeIterator<T>(iterator(), new Predicate<T>() {
+        return subset(new Query<T>(getPartitioningSupplier(0, amount - 1, true), getSourceReset(), () -> new TakeIterator<T>(iterator(), new Predicate<T>() {
             int i = 0;
             public boolean test(T t) {
                 return amount > i++;
             }
-        }));
+        })));
     }
 
     /**
@@ -361,7 +664,7 @@ public class Query<T> implements Iterable<T> {
      * not true.  That item and all subsequent items (if any) are discarded.
      */
     public Query<T> takeWhile(Predicate<T> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new TakeIterator<T>(iterator(), condition));
+        return subset(new Query<T>(getBoundedSize(), getSourceReset(), () -> new TakeIterator<T>(iterator(), condition)));
     }
 
     /**
@@ -370,7 +673,7 @@ public class Query<T> implements Iterable<T> {
      * included to be used in the condition.
      */
     public Query<T> takeWhileByIndex(BiPredicate<T, Integer> condition) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new TakeIterator<T>(iterator(), new Predicate<T>() {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new TakeIterator<T>(iterator(), new Predicate<T>() {
             int i = 0;
             public boolean test(T t) {
                 return condition.test(t, i++);
@@ -385,7 +688,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> takeWhileByContext(BiPredicate<T, QueryContext<T>> condition) {
         QueryContextController<T> contextController = new QueryContextController<>(iterator());
-        return new Query<T>(unknownSize, getSourceReset(), () -> new TakeIterator<T>(contextController, t -> condition.test(t, contextController)));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new TakeIterator<T>(contextController, t -> condition.test(t, contextController)));
     }
 
     /**
@@ -418,6 +721,147 @@ public class Query<T> implements Iterable<T> {
         return new Query<T>(getPartitioningSupplier(startIndex, endIndex, false), getSourceReset(), () -> new ExcludeIterator<T>(iterator(), startIndex, endIndex));
     }
 
+    /**
+     * Splits the source into consecutive QueryLists of the provided size.  Each QueryList is sized exactly to its
+     * contents.  The last chunk holds whatever items remain and may be smaller than the size.  The size must be greater
+     * than zero.
+     */
+    public Query<QueryList<T>> chunk(int size) {
+        if (size <= 0)
+            throw new RuntimeException("Chunk size must be greater than zero.");
+        return new Query<QueryList<T>>(getWindowSupplier(size, size, true), getSourceReset(), () -> new WindowIterator<T, QueryList<T>>(iterator(), size, size, true, false));
+    }
+
+    /**
+     * Splits the source into consecutive read-only List views of the provided size.  A single view over a single
+     * preallocated buffer is reused for every chunk, so each view is only valid until the next chunk is requested and
+     * must be copied if it needs to be kept.  The last chunk holds whatever items remain and may be smaller than the
+     * size.  The size must be greater than zero.
+     */
+    public Query<List<T>> chunkView(int size) {
+        if (size <= 0)
+            throw new RuntimeException("ChunkView size must be greater than zero.");
+        return new Query<List<T>>(getWindowSupplier(size, size, true), getSourceReset(), () -> new WindowIterator<T, List<T>>(iterator(), size, size, true, true));
+    }
+
+    /**
+     * Slides a window of the provided size across the source, advancing by the provided step each time, and returns
+     * each window as a QueryList.  Only full windows are returned, so any trailing items that can't fill a window are
+     * discarded.  A step larger than the size skips the items in between windows.  The size and step must be greater
+     * than zero.
+     */
+    public Query<QueryList<T>> window(int size, int step) {
+        if (size <= 0)
+            throw new RuntimeException("Window size must be greater than zero.");
+        if (step <= 0)
+            throw new RuntimeException("Window step must be greater than zero.");
+        return new Query<QueryList<T>>(getWindowSupplier(size, step, false), getSourceReset(), () -> new WindowIterator<T, QueryList<T>>(iterator(), size, step, false, false));
+    }
+
+    /**
+     * Slides a window of the provided size across the source, advancing by the provided step each time, and returns
+     * each window as a read-only List view.  A single view over a single preallocated buffer is reused for every
+     * window, so each view is only valid until the next window is requested and must be copied if it needs to be kept.
+     * Only full windows are returned.  The size and step must be greater than zero.
+     */
+    public Query<List<T>> windowView(int size, int step) {
+        if (size <= 0)
+            throw new RuntimeException("WindowView size must be greater than zero.");
+        if (step <= 0)
+            throw new RuntimeException("WindowView step must be greater than zero.");
+        return new Query<List<T>>(getWindowSupplier(size, step, false), getSourceReset(), () -> new WindowIterator<T, List<T>>(iterator(), size, step, false, true));
+    }
+
+    /**
+     * Pairs each item in the source with the item that follows it into a Tuple.  A source with fewer than two items
+     * returns an empty Query.
+     */
+    public Query<Tuple<T, T>> pairwise() {
+        return new Query<Tuple<T, T>>(getWindowSupplier(2, 1, false), getSourceReset(), () -> {
+            WindowIterator<T, List<T>> windowIterator = new WindowIterator<T, List<T>>(iterator(), 2, 1, false, true);
+            return new SelectIterator<List<T>, Tuple<T, T>>(windowIterator, w -> Tuple.create(w.get(0), w.get(1)));
+        });
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items from the source in a single pass, holding
+     * only the sample in memory.  If the source has fewer items than the sample size then every item is returned.  The
+     * sample is not in source order.  The sample size cannot be less than zero.
+     */
+    public Query<T> sample(int sampleSize) {
+        return sample(sampleSize, null);
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items from the source in a single pass, drawing
+     * from the provided Random.  Reservoir sampling with geometric skips (Algorithm L) is used, so only a handful of
+     * random numbers are drawn per sampled item however large the source is.  A seeded Random gives a reproducible
+     * sample, but it continues from where it left off each time the result is iterated.  The sample size cannot be
+     * less than zero.
+     */
+    public Query<T> sample(int sampleSize, Random random) {
+        if (sampleSize < 0)
+            throw new RuntimeException("Sample sampleSize cannot be less than zero.");
+        return new Query<T>(getSampleSupplier(sampleSize), getSourceReset(), () -> new ReservoirIterator<T, Object>(iterator(), null, sampleSize, random != null ? random : new Random()));
+    }
+
+    /**
+     * Returns each item in the source independently with the provided probability, in source order and without
+     * buffering.  The probability must be between 0 and 1.
+     */
+    public Query<T> sampleFraction(double probability) {
+        return sampleFraction(probability, null);
+    }
+
+    /**
+     * Returns each item in the source independently with the provided probability, in source order and without
+     * buffering, drawing from the provided Random.  Rather than drawing for every item, the gap to the next sampled
+     * item is drawn from its geometric distribution.  The probability must be between 0 and 1.
+     */
+    public Query<T> sampleFraction(double probability, Random random) {
+        if (!(probability >= 0 && probability <= 1))
+            throw new RuntimeException("SampleFraction probability must be between 0 and 1.");
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new WhereIterator<T>(iterator(), new Predicate<T>() {
+            Random generator = random != null ? random : new Random();
+            long skip = nextSkip();
+            long nextSkip() {
+                if (probability == 0)
+                    return Long.MAX_VALUE;
+                double gap = Math.floor(Math.log(1 - generator.nextDouble()) / Math.log1p(-probability));
+                return gap < Long.MAX_VALUE ? (long)gap : Long.MAX_VALUE;
+            }
+            public boolean test(T t) {
+                if (skip > 0) {
+                    skip--;
+                    return false;
+                }
+                skip = nextSkip();
+                return true;
+            }
+        }));
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items for each key obtained by the provided
+     * keySelector, so that every stratum is represented no matter how rare.  The samples are returned together, one
+     * stratum after another in the order each key was first seen.  The sample size cannot be less than zero.
+     */
+    public <K> Query<T> stratifiedSample(Function<T, K> keySelector, int sampleSize) {
+        return stratifiedSample(keySelector, sampleSize, null);
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items for each key obtained by the provided
+     * keySelector, drawing from the provided Random.  Each stratum is sampled with its own reservoir in a single pass.
+     * The sample size cannot be less than zero.
+     */
+    public <K> Query<T> stratifiedSample(Function<T, K> keySelector, int sampleSize, Random random) {
+        Objects.requireNonNull(keySelector);
+        if (sampleSize < 0)
+            throw new RuntimeException("StratifiedSample sampleSize cannot be less than zero.");
+        return new Query<T>(unknownSize, getSourceReset(), () -> new ReservoirIterator<T, K>(iterator(), keySelector, sampleSize, random != null ? random : new Random()));
+    }
+
     //
     // Ordering Operators
     //
@@ -464,7 +908,7 @@ public class Query<T> implements Iterable<T> {
      * allow for sub-ordering.
      */
     public <S extends Comparable<S>> OrderedQuery<T> orderBy(Function<T, S> selector) {
-        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), new Ordering<T, S>(selector, false, false));
+        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), Collections.singletonList(new Ordering<T, S>(selector, false, false, getIndexOrderSupplier(selector, false, false))));
     }
 
     /**
@@ -473,7 +917,7 @@ public class Query<T> implements Iterable<T> {
      * allow for sub-ordering.
      */
     public <S extends Comparable<S>> OrderedQuery<T> orderByNullsFirst(Function<T, S> selector) {
-        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), new Ordering<T, S>(selector, false, true));
+        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), Collections.singletonList(new Ordering<T, S>(selector, false, true, getIndexOrderSupplier(selector, false, true))));
     }
 
     /**
@@ -490,7 +934,7 @@ public class Query<T> implements Iterable<T> {
      * allow for sub-ordering.
      */
     public <S extends Comparable<S>> OrderedQuery<T> orderByDescending(Function<T, S> selector) {
-        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), new Ordering<T, S>(selector, true, false));
+        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), Collections.singletonList(new Ordering<T, S>(selector, true, false, getIndexOrderSupplier(selector, true, true))));
     }
 
     /**
@@ -499,7 +943,7 @@ public class Query<T> implements Iterable<T> {
      * allow for sub-ordering.
      */
     public <S extends Comparable<S>> OrderedQuery<T> orderByDescendingNullsLast(Function<T, S> selector) {
-        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), new Ordering<T, S>(selector, true, true));
+        return new OrderedQuery<T>(getSizeSupplier(), getSourceReset(), () -> iterator(), Collections.singletonList(new Ordering<T, S>(selector, true, true, getIndexOrderSupplier(selector, true, false))));
     }
 
     /**
@@ -616,21 +1060,23 @@ public class Query<T> implements Iterable<T> {
      * Filters the source down to a set that are distinct according to T's equals() implementation.
      */
     public Query<T> distinct() {
-        return distinct(selectSelf);
+        Query<T> distinct = distinct(selectSelf);
+        distinct.isDistinct = true;
+        return distinct;
     }
 
     /**
      * Filters the source down to a set that are distinct according to the results of the provided selector.
      */
     public <S> Query<T> distinct(Function<T, S> selector) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new DistinctIterator<T, S>(iterator(), selector));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new DistinctIterator<T, S>(iterator(), selector, getPresize()));
     }
 
     /**
      * Filters the source down to a set that are distinct according to the provided matcher.
      */
     public Query<T> distinct(BiPredicate<T, T> matcher) {
-        return new Query<T>(unknownSize, getSourceReset(), () -> new DistinctIterator<T, T>(iterator(), matcher));
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> new DistinctIterator<T, T>(iterator(), matcher));
     }
 
     /**
@@ -656,7 +1102,7 @@ public class Query<T> implements Iterable<T> {
      */
     public <S> Query<T> except(Iterable<? extends T> exceptions, Function<T, S> selector) {
         Objects.requireNonNull(exceptions);
-        return new Query<T>(unknownSize, getSourceReset(), () -> {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> {
             WhereInIterator<T, S> whereInIterator = new WhereInIterator<T, S>(iterator(), exceptions, selector, false);
             return new DistinctIterator<T, S>(whereInIterator, selector);
         });
@@ -668,7 +1114,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> except(Iterable<? extends T> exceptions, BiPredicate<T, T> matcher) {
         Objects.requireNonNull(exceptions);
-        return new Query<T>(unknownSize, getSourceReset(), () -> {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> {
             WhereInIterator<T, T> whereInIterator = new WhereInIterator<T, T>(iterator(), exceptions, matcher, false);
             return new DistinctIterator<T, T>(whereInIterator, matcher);
         });
@@ -697,7 +1143,7 @@ public class Query<T> implements Iterable<T> {
      */
     public <S> Query<T> intersect(Iterable<? extends T> intersections, Function<T, S> selector) {
         Objects.requireNonNull(intersections);
-        return new Query<T>(unknownSize, getSourceReset(), () -> {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> {
             WhereInIterator<T, S> whereInIterator = new WhereInIterator<T, S>(iterator(), intersections, selector, true);
             return new DistinctIterator<T, S>(whereInIterator, selector);
         });
@@ -709,7 +1155,7 @@ public class Query<T> implements Iterable<T> {
      */
     public Query<T> intersect(Iterable<? extends T> intersections, BiPredicate<T, T> matcher) {
         Objects.requireNonNull(intersections);
-        return new Query<T>(unknownSize, getSourceReset(), () -> {
+        return new Query<T>(getBoundedSize(), getSourceReset(), () -> {
             WhereInIterator<T, T> whereInIterator = new WhereInIterator<T, T>(iterator(), intersections, matcher, true);
             return new DistinctIterator<T, T>(whereInIterator, matcher);
         });
@@ -764,7 +1210,7 @@ public class Query<T> implements Iterable<T> {
      * Transforms the source to the projection defined by the provided selector.
      */
     public <S> Query<S> select(Function<T, S> selector) {
-        return new Query<S>(getSizeSupplier(), getSourceReset(), () -> new SelectIterator<T, S>(iterator(), selector));
+        return staged(new Query<S>(getSizeSupplier(), getSourceReset(), () -> new SelectIterator<T, S>(iterator(), selector)), selector, false);
     }
 
     /**
@@ -869,7 +1315,57 @@ public class Query<T> implements Iterable<T> {
      * underlying Map functionality of QueryGroup.
      */
     public <K, V> Query<QueryGrouping<K, V>> selectGrouped(Function<T, K> keySelector, Function<T, V> valueSelector) {
-        return new Query<QueryGrouping<K, V>>(unknownSize, getSourceReset(), () -> new GroupByIterator<>(iterator(), keySelector, valueSelector));
+        return new Query<QueryGrouping<K, V>>(getBoundedSize(), getSourceReset(), () -> new GroupByIterator<>(iterator(), keySelector, valueSelector, getPresize()));
+    }
+
+    /**
+     * Groups items from the source into consecutive, non-overlapping windows of the provided size by the timestamp
+     * obtained from the provided timestampSelector.  Each window is returned as a QueryGrouping keyed by the start of
+     * the window.  Windows start on multiples of the size, and any item with a timestamp behind the highest timestamp
+     * seen so far by at least the size is too late for its window and is dropped.  See windowByTime(timestampSelector,
+     * size, slide, allowedLateness).
+     */
+    public Query<QueryGrouping<Long, T>> windowByTime(ToLongFunction<T> timestampSelector, long size) {
+        return windowByTime(timestampSelector, size, size, 0);
+    }
+
+    /**
+     * Groups items from the source into windows of the provided size by the timestamp obtained from the provided
+     * timestampSelector, starting a new window at every multiple of the slide.  A slide equal to the size gives
+     * tumbling windows, a smaller slide gives overlapping (hopping) windows, and a larger slide leaves gaps between
+     * windows.  Each window is returned as a QueryGrouping keyed by the start of the window.
+     *
+     * The watermark trails the highest timestamp seen so far by the allowedLateness, and each window is returned as
+     * soon as the watermark reaches its end, so only open windows are kept in memory and this can be used on an
+     * unbounded source.  Items that only fall in windows that have already been returned are dropped.  Any windows
+     * still open when the source runs out are returned in order.  The size and slide must be greater than zero, and
+     * the allowedLateness cannot be less than zero.
+     */
+    public Query<QueryGrouping<Long, T>> windowByTime(ToLongFunction<T> timestampSelector, long size, long slide, long allowedLateness) {
+        validateTimeWindow(size, slide, allowedLateness);
+        return new Query<QueryGrouping<Long, T>>(unknownSize, getSourceReset(), () -> new TimeWindowIterator<T, QueryGrouping<Long, T>, QueryGrouping<Long, T>>(
+                iterator(), timestampSelector, size, slide, allowedLateness,
+                start -> new QueryGrouping<Long, T>(start, new ArrayList<T>()),
+                (grouping, t) -> {
+                    grouping.add(t);
+                    return grouping;
+                },
+                (start, grouping) -> grouping));
+    }
+
+    /**
+     * Aggregates items from the source into windows of the provided size by the timestamp obtained from the provided
+     * timestampSelector, starting a new window at every multiple of the slide.  Each window starts from the seed
+     * obtained from the provided supplier and applies the provided aggregation as items arrive, so the items
+     * themselves are never held.  Each result is returned as a QueryMapping keyed by the start of the window.  See
+     * windowByTime(timestampSelector, size, slide, allowedLateness) for how windows are closed.
+     */
+    public <A> Query<QueryMapping<Long, A>> windowByTime(ToLongFunction<T> timestampSelector, long size, long slide, long allowedLateness,
+                                                         Supplier<A> seed, BiFunction<A, T, A> aggregation) {
+        validateTimeWindow(size, slide, allowedLateness);
+        return new Query<QueryMapping<Long, A>>(unknownSize, getSourceReset(), () -> new TimeWindowIterator<T, A, QueryMapping<Long, A>>(
+                iterator(), timestampSelector, size, slide, allowedLateness, start -> seed.get(), aggregation,
+                (start, aggregate) -> new QueryMapping<Long, A>(start, aggregate)));
     }
 
     /**
@@ -880,6 +1376,122 @@ public class Query<T> implements Iterable<T> {
         return new Query<S>(getSizeSupplier(), getSourceReset(), () -> new SelectIterator<T, S>(iterator(), t -> type.cast(t)));
     }
 
+    /**
+     * Applies the provided accumulator to each item in the source from a null seed, like aggregate(), but returns every
+     * intermediate result rather than only the final one.
+     */
+    public <A> Query<A> scan(BiFunction<A, T, A> accumulator) {
+        return scan(null, accumulator);
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a provided seed, like aggregate(), but returns
+     * every intermediate result rather than only the final one.  The seed itself is not returned.
+     */
+    public <A> Query<A> scan(A seed, BiFunction<A, T, A> accumulator) {
+        return scanByIndex(seed, (a, t, i) -> accumulator.apply(a, t));
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a null seed, like aggregateByIndex(), but returns
+     * every intermediate result rather than only the final one.  The index of each item in the source is included to
+     * be used in the accumulator.
+     */
+    public <A> Query<A> scanByIndex(TriFunction<A, T, Integer, A> accumulator) {
+        return scanByIndex(null, accumulator);
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a provided seed, like aggregateByIndex(), but
+     * returns every intermediate result rather than only the final one.  The seed itself is not returned.  The index of
+     * each item in the source is included to be used in the accumulator.
+     */
+    public <A> Query<A> scanByIndex(A seed, TriFunction<A, T, Integer, A> accumulator) {
+        return new Query<A>(getSizeSupplier(), getSourceReset(), () -> new SelectIterator<T, A>(iterator(), new Function<T, A>() {
+            A result = seed;
+            int i = 0;
+            public A apply(T t) {
+                return result = accumulator.apply(result, t, i++);
+            }
+        }));
+    }
+
+    /**
+     * Returns the running combination of the items in the source by the provided accumulator, like scan(), but
+     * computes it with a parallel prefix across the available cores.  The accumulator must be associative.  The source
+     * is materialized into an array each time the query is iterated.
+     */
+    public Query<T> parallelScan(BinaryOperator<T> accumulator) {
+        return parallelScan(selectSelf, accumulator);
+    }
+
+    /**
+     * Returns the running combination of the projections of the provided selector for each item in the source by the
+     * provided accumulator, like scan(), but computes it with a parallel prefix across the available cores.  The
+     * accumulator must be associative.  The source is materialized into an array each time the query is iterated.
+     */
+    @SuppressWarnings("unchecked")
+    public <A> Query<A> parallelScan(Function<T, A> selector, BinaryOperator<A> accumulator) {
+        return new Query<A>(getSizeSupplier(), getSourceReset(), () -> {
+            Object[] prefix = select(selector).toArray();
+            Arrays.parallelPrefix(prefix, (x, y) -> accumulator.apply((A)x, (A)y));
+            return new ArrayIterator<A>((A[])prefix);
+        });
+    }
+
+    /**
+     * Slides a window of the provided size across the source one item at a time and returns the aggregate of each full
+     * window.  A new RollingAggregator is obtained from the provided supplier for each iteration, and it is updated
+     * incrementally as items enter and leave the window rather than recomputed for each window.  The window size must
+     * be greater than zero.
+     */
+    public <A> Query<A> rolling(int windowSize, Supplier<RollingAggregator<T, A>> aggregator) {
+        if (windowSize <= 0)
+            throw new RuntimeException("Rolling windowSize must be greater than zero.");
+        return new Query<A>(getWindowSupplier(windowSize, 1, false), getSourceReset(), () -> new RollingIterator<T, A>(iterator(), windowSize, aggregator.get()));
+    }
+
+    /**
+     * Slides a window of the provided size across the source one item at a time and returns the items of each full
+     * window combined by the provided combiner.  The combiner must be associative, and each item is combined a constant
+     * number of times regardless of the window size.  The window size must be greater than zero.
+     */
+    public Query<T> rolling(int windowSize, BinaryOperator<T> combiner) {
+        return rolling(windowSize, () -> RollingAggregator.combining(combiner));
+    }
+
+    /**
+     * Returns the sum of the projections of the provided selector for each full window of the provided size, sliding
+     * one item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingSum(int windowSize, ToDoubleFunction<T> selector) {
+        return rolling(windowSize, () -> RollingAggregator.sum(selector));
+    }
+
+    /**
+     * Returns the average of the projections of the provided selector for each full window of the provided size,
+     * sliding one item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingAverage(int windowSize, ToDoubleFunction<T> selector) {
+        return rolling(windowSize, () -> RollingAggregator.average(selector));
+    }
+
+    /**
+     * Returns the lowest projection of the provided selector for each full window of the provided size, sliding one
+     * item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingMin(int windowSize, ToDoubleFunction<T> selector) {
+        return rolling(windowSize, () -> RollingAggregator.min(selector));
+    }
+
+    /**
+     * Returns the highest projection of the provided selector for each full window of the provided size, sliding one
+     * item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingMax(int windowSize, ToDoubleFunction<T> selector) {
+        return rolling(windowSize, () -> RollingAggregator.max(selector));
+    }
+
     //
     // Application Operators
     //
@@ -953,7 +1565,7 @@ public class Query<T> implements Iterable<T> {
     public <R, K> Query<Tuple<T, R>> join(JoinType joinType, Iterable<R> rightItems, Function<T, K> leftSelector, Function<R, K> rightSelector) {
         Objects.requireNonNull(joinType);
         Objects.requireNonNull(rightItems);
-        return new Query<Tuple<T, R>>(unknownSize, getSourceReset(), () -> new JoinIterator<T, R>(iterator(), joinType, rightItems.iterator(), leftSelector, rightSelector, findSize(rightItems)));
+        return new Query<Tuple<T, R>>(unknownSize, getSourceReset(), () -> newJoinIterator(joinType, rightItems, leftSelector, rightSelector));
     }
 
     /**
@@ -990,7 +1602,7 @@ public class Query<T> implements Iterable<T> {
         Objects.requireNonNull(joinType);
         Objects.requireNonNull(rightItems);
         return new Query<S>(unknownSize, getSourceReset(), () -> {
-            JoinIterator<T, R> joinIterator = new JoinIterator<T, R>(iterator(), joinType, rightItems.iterator(), leftSelector, rightSelector, findSize(rightItems));
+            Iterator<Tuple<T, R>> joinIterator = newJoinIterator(joinType, rightItems, leftSelector, rightSelector);
             return new SelectIterator<Tuple<T, R>, S>(joinIterator, tr -> joiner.apply(tr.getItem1(), tr.getItem2()));
         });
     }
@@ -1016,6 +1628,141 @@ public class Query<T> implements Iterable<T> {
         });
     }
 
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into a Tuple wherever the projection of
+     * a left item's leftSelector is the key of an indexed item.
+     */
+    public <R, K> Query<Tuple<T, R>> join(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return join(JoinType.INNER, rightIndex, leftSelector);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into a Tuple
+     * wherever the projection of a left item's leftSelector is the key of an indexed item.  Unmatched right items are
+     * grouped by key.
+     */
+    public <R, K> Query<Tuple<T, R>> join(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightIndex);
+        return new Query<Tuple<T, R>>(unknownSize, getSourceReset(), () -> new JoinIterator<T, R>(iterator(), joinType, l -> rightIndex.get(leftSelector.apply(l)), rightIndex.items()));
+    }
+
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into the joiner projection wherever the
+     * projection of a left item's leftSelector is the key of an indexed item.
+     */
+    public <K, R, S> Query<S> join(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, R, S> joiner) {
+        return join(JoinType.INNER, rightIndex, leftSelector, joiner);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into the
+     * joiner projection wherever the projection of a left item's leftSelector is the key of an indexed item.
+     * Unmatched right items are grouped by key.
+     */
+    public <K, R, S> Query<S> join(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, R, S> joiner) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightIndex);
+        return new Query<S>(unknownSize, getSourceReset(), () -> {
+            JoinIterator<T, R> joinIterator = new JoinIterator<T, R>(iterator(), joinType, l -> rightIndex.get(leftSelector.apply(l)), rightIndex.items());
+            return new SelectIterator<Tuple<T, R>, S>(joinIterator, tr -> joiner.apply(tr.getItem1(), tr.getItem2()));
+        });
+    }
+
+    /**
+     * Inner joins the source as left with the provided rightItems into a Tuple wherever the projection of a left
+     * item's leftValue falls between the projections of a right item's rightLow and rightHigh, both inclusive.  The
+     * right items are put in an interval tree so each left item finds its matches without a scan.  Matches for each
+     * left item are in the order of the right items, as with a join by matcher.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinBetween(Iterable<R> rightItems, Function<T, S> leftValue, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return joinBetween(JoinType.INNER, rightItems, leftValue, rightLow, rightHigh);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the provided rightItems into a Tuple wherever the
+     * projection of a left item's leftValue falls between the projections of a right item's rightLow and rightHigh,
+     * both inclusive.  The right items are put in an interval tree so each left item finds its matches without a
+     * scan.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinBetween(JoinType joinType, Iterable<R> rightItems, Function<T, S> leftValue, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightItems);
+        return new Query<Tuple<T, R>>(unknownSize, getSourceReset(), () -> {
+            IntervalIndex<R, S> index = new IntervalIndex<R, S>(rightItems, rightLow, rightHigh);
+            return new JoinIterator<T, R>(iterator(), joinType, l -> index.containing(leftValue.apply(l)), index.getItems());
+        });
+    }
+
+    /**
+     * Inner joins the source as left with the provided rightItems into a Tuple wherever the range of a left item from
+     * leftLow to leftHigh overlaps the range of a right item from rightLow to rightHigh, all inclusive.  The right
+     * items are put in an interval tree so each left item finds its matches without a scan.  Matches for each left
+     * item are in the order of the right items, as with a join by matcher.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinOverlapping(Iterable<R> rightItems, Function<T, S> leftLow, Function<T, S> leftHigh, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return joinOverlapping(JoinType.INNER, rightItems, leftLow, leftHigh, rightLow, rightHigh);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the provided rightItems into a Tuple wherever the
+     * range of a left item from leftLow to leftHigh overlaps the range of a right item from rightLow to rightHigh, all
+     * inclusive.  The right items are put in an interval tree so each left item finds its matches without a scan.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinOverlapping(JoinType joinType, Iterable<R> rightItems, Function<T, S> leftLow, Function<T, S> leftHigh, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightItems);
+        return new Query<Tuple<T, R>>(unknownSize, getSourceReset(), () -> {
+            IntervalIndex<R, S> index = new IntervalIndex<R, S>(rightItems, rightLow, rightHigh);
+            return new JoinIterator<T, R>(iterator(), joinType, l -> index.overlapping(leftLow.apply(l), leftHigh.apply(l)), index.getItems());
+        });
+    }
+
+    /**
+     * Inner joins the source against two dimensions in a single pass into a Triple of each source item and its
+     * matches.  A source item matches a dimension item wherever the projection of its key selector for that dimension
+     * equals the projection of the dimension item's key selector.  A hash table of each dimension is built once and
+     * every source item probes them all without any intermediate Tuple.
+     */
+    public <A, B, K1, K2> Query<Triple<T, A, B>> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector) {
+        return starJoin(first, firstKey, firstSelector, second, secondKey, secondSelector, Triple::create);
+    }
+
+    /**
+     * Inner joins the source against two dimensions in a single pass into the joiner projection of each source item
+     * and its matches.  A source item matches a dimension item wherever the projection of its key selector for that
+     * dimension equals the projection of the dimension item's key selector.  A hash table of each dimension is built
+     * once and every source item probes them all without any intermediate Tuple.
+     */
+    @SuppressWarnings("unchecked")
+    public <A, B, K1, K2, S> Query<S> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector, TriFunction<T, A, B, S> joiner) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        return new Query<S>(unknownSize, getSourceReset(), () -> new StarJoinIterator<T, S>(iterator(),
+                Arrays.asList(first, second),
+                Arrays.asList(firstKey, secondKey),
+                Arrays.asList(x -> firstSelector.apply((A)x), x -> secondSelector.apply((B)x)),
+                row -> joiner.apply((T)row[0], (A)row[1], (B)row[2])));
+    }
+
+    /**
+     * Inner joins the source against three dimensions in a single pass into the joiner projection of each source item
+     * and its matches.  A source item matches a dimension item wherever the projection of its key selector for that
+     * dimension equals the projection of the dimension item's key selector.  A hash table of each dimension is built
+     * once and every source item probes them all without any intermediate Tuple.
+     */
+    @SuppressWarnings("unchecked")
+    public <A, B, C, K1, K2, K3, S> Query<S> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector, Iterable<C> third, Function<T, K3> thirdKey, Function<C, K3> thirdSelector, QuadFunction<T, A, B, C, S> joiner) {
+        Objects.requireNonNull(first);
+        Objects.requireNonNull(second);
+        Objects.requireNonNull(third);
+        return new Query<S>(unknownSize, getSourceReset(), () -> new StarJoinIterator<T, S>(iterator(),
+                Arrays.asList(first, second, third),
+                Arrays.asList(firstKey, secondKey, thirdKey),
+                Arrays.asList(x -> firstSelector.apply((A)x), x -> secondSelector.apply((B)x), x -> thirdSelector.apply((C)x)),
+                row -> joiner.apply((T)row[0], (A)row[1], (B)row[2], (C)row[3])));
+    }
+
     /**
      * Inner joins the source as left with the provided rightItems into a Tuple wherever the projection of a left
      * item's leftSelector equals the projection of right item's rightSelector.  Joined right items are grouped in a
@@ -1100,6 +1847,49 @@ public class Query<T> implements Iterable<T> {
         });
     }
 
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into a Tuple wherever the projection of
+     * a left item's leftSelector is the key of an indexed item.  Joined right items are grouped in a QueryList for
+     * each left item.
+     */
+    public <R, K> Query<Tuple<T, QueryList<R>>> groupJoin(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return groupJoin(JoinType.INNER, rightIndex, leftSelector);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into a Tuple
+     * wherever the projection of a left item's leftSelector is the key of an indexed item.  Joined right items are
+     * grouped in a QueryList for each left item.
+     */
+    public <R, K> Query<Tuple<T, QueryList<R>>> groupJoin(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightIndex);
+        return new Query<Tuple<T, QueryList<R>>>(getGroupJoinSupplier(joinType), getSourceReset(), () -> new GroupJoinIterator<T, R>(iterator(), joinType, l -> rightIndex.get(leftSelector.apply(l)), rightIndex.items()));
+    }
+
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into the joiner projection wherever the
+     * projection of a left item's leftSelector is the key of an indexed item.  Joined right items are grouped in a
+     * QueryList for each left item.
+     */
+    public <K, R, S> Query<S> groupJoin(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, QueryList<R>, S> joiner) {
+        return groupJoin(JoinType.INNER, rightIndex, leftSelector, joiner);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into the
+     * joiner projection wherever the projection of a left item's leftSelector is the key of an indexed item.  Joined
+     * right items are grouped in a QueryList for each left item.
+     */
+    public <K, R, S> Query<S> groupJoin(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, QueryList<R>, S> joiner) {
+        Objects.requireNonNull(joinType);
+        Objects.requireNonNull(rightIndex);
+        return new Query<S>(getGroupJoinSupplier(joinType), getSourceReset(), () -> {
+            GroupJoinIterator<T, R> groupJoinIterator = new GroupJoinIterator<T, R>(iterator(), joinType, l -> rightIndex.get(leftSelector.apply(l)), rightIndex.items());
+            return new SelectIterator<Tuple<T, QueryList<R>>, S>(groupJoinIterator, tr -> joiner.apply(tr.getItem1(), tr.getItem2()));
+        });
+    }
+
     /**
      * Inner joins the source as left with the provided rightItems into a Tuple where the left and right items share
      * the same index.
@@ -1221,6 +2011,9 @@ public class Query<T> implements Iterable<T> {
     public <K, V> QueryMap<K, V> map(Function<T, K> keySelector, Function<T, V> valueSelector) {
         if (getSizeSupplier().get() != null)
             return new QueryMap<K, V>(this.asCollection(), keySelector, valueSelector);
+        Integer presize = getPresize();
+        if (presize != null)
+            return new QueryMap<K, V>(presize, this, keySelector, valueSelector);
         return new QueryMap<K, V>(this, keySelector, valueSelector);
     }
 
@@ -1280,7 +2073,11 @@ public class Query<T> implements Iterable<T> {
     public QueryList<T> toList() {
         if (getSizeSupplier().get() != null)
             return new QueryList<T>(this.asCollection());
-        return to(new QueryList<T>());
+        QueryList<T> list = new QueryList<T>();
+        Integer presize = getPresize();
+        if (presize != null)
+            list.ensureCapacity(presize);
+        return to(list);
     }
 
     /**
@@ -1296,6 +2093,9 @@ public class Query<T> implements Iterable<T> {
     public QuerySet<T> toSet() {
         if (getSizeSupplier().get() != null)
             return new QuerySet<T>(this.asCollection());
+        Integer presize = getPresize();
+        if (presize != null)
+            return new QuerySet<T>(presize, this);
         return to(new QuerySet<T>());
     }
 
@@ -1306,13 +2106,20 @@ public class Query<T> implements Iterable<T> {
         return cast(type).toSet();
     }
 
+    /**
+     * Returns a JoinIndex of the query result by the provided keySelector that can be shared by any number of joins.
+     * Rebuilding the index runs the query again.
+     */
+    public <K> JoinIndex<T, K> toJoinIndex(Function<T, K> keySelector) {
+        return new JoinIndex<T, K>(this, keySelector);
+    }
+
     /**
      * Returns the query result as the provided collection.
      */
     public <C extends Collection<? super T>> C to(C collection) {
         Objects.requireNonNull(collection);
-        for (T item : this)
-            collection.add(item);
+        drain(collection::add);
         return collection;
     }
 
@@ -1325,9 +2132,7 @@ public class Query<T> implements Iterable<T> {
         Integer size = getSizeSupplier().get();
         if (size != null) {
             S[] array = (S[])Array.newInstance(type, size);
-            int index = 0;
-            for (T item : this)
-                array[index++] = (S)item;
+            fillArray(array);
             return array;
         }
         List<S> list = toList(type);
@@ -1342,14 +2147,48 @@ public class Query<T> implements Iterable<T> {
         Integer size = getSizeSupplier().get();
         if (size != null) {
             Object[] array = (Object[])Array.newInstance(Object.class, size);
-            int index = 0;
-            for (T item : this)
-                array[index++] = item;
+            fillArray(array);
             return array;
         }
         return toList().toArray();
     }
 
+    /**
+     * Returns the projection of the provided selector for each item as an IntQueryList, which holds the values as
+     * ints rather than boxed.
+     */
+    public IntQueryList toIntList(ToIntFunction<T> selector) {
+        Integer presize = getPresize();
+        IntQueryList list = IntQueryList.initialCapacity(presize != null ? presize : 0);
+        for (T item : this)
+            list.addInt(selector.applyAsInt(item));
+        return list;
+    }
+
+    /**
+     * Returns the projection of the provided selector for each item as a LongQueryList, which holds the values as
+     * longs rather than boxed.
+     */
+    public LongQueryList toLongList(ToLongFunction<T> selector) {
+        Integer presize = getPresize();
+        LongQueryList list = LongQueryList.initialCapacity(presize != null ? presize : 0);
+        for (T item : this)
+            list.addLong(selector.applyAsLong(item));
+        return list;
+    }
+
+    /**
+     * Returns the projection of the provided selector for each item as a DoubleQueryList, which holds the values as
+     * doubles rather than boxed.
+     */
+    public DoubleQueryList toDoubleList(ToDoubleFunction<T> selector) {
+        Integer presize = getPresize();
+        DoubleQueryList list = DoubleQueryList.initialCapacity(presize != null ? presize : 0);
+        for (T item : this)
+            list.addDouble(selector.applyAsDouble(item));
+        return list;
+    }
+
     //
     // Element Operators
     //
@@ -1413,6 +2252,13 @@ public class Query<T> implements Iterable<T> {
      * found.
      */
     public T firstOr(Predicate<T> condition, T alternate) {
+        if (condition instanceof QueryIndex.Lookup) {
+            QueryIndex.Lookup<?, T> lookup = (QueryIndex.Lookup<?, T>)condition;
+            if (lookup.isOver(source) && lookup.isOrdered()) {
+                Iterator<T> matches = lookup.iterator();
+                return matches.hasNext() ? matches.next() : alternate;
+            }
+        }
         for (T item : this)
             if (condition.test(item))
                 return item;
@@ -1697,12 +2543,12 @@ public class Query<T> implements Iterable<T> {
      * Aggregates each item in the source according to the provided aggregation from a provided seed.  The index of
      * each item in the source is included to be used in the aggregation.
      */
+    @SuppressWarnings("unchecked")
     public <A> A aggregateByIndex(A seed, TriFunction<A, T, Integer, A> aggregation) {
-        A result = seed;
-        int i = 0;
-        for (T item : this)
-            result = aggregation.apply(result, item, i++);
-        return result;
+        Object[] result = {seed};
+        int[] index = {0};
+        drain(item -> result[0] = aggregation.apply((A)result[0], item, index[0]++));
+        return (A)result[0];
     }
 
     /**
@@ -1730,24 +2576,138 @@ public class Query<T> implements Iterable<T> {
      */
     public int count() {
         Integer size = getSizeSupplier().get();
-        return size != null ? size : count(anything);
+        if (size != null)
+            return size;
+        Object array = getKernelArray();
+        return array != null ? ArrayKernels.count(array, kernelFilter) : count(anything);
     }
 
     /**
      * Returns the number of items in the result that match the provided condition.
      */
     public int count(Predicate<T> condition) {
-        int count = 0;
-        for (T item : this)
+        if (condition instanceof Comparison && kernelFilter == null) {
+            Object array = getKernelArray();
+            if (array != null)
+                return ArrayKernels.count(array, (Comparison<?>)condition);
+        }
+        int[] matches = {0};
+        drain(item -> {
             if (condition.test(item))
-                count++;
-        return count;
+                matches[0]++;
+        });
+        return matches[0];
+    }
+
+    /**
+     * Returns an estimate of the number of distinct items in the result using a HyperLogLog sketch of the default
+     * precision.  Unlike distinct().count(), which holds every distinct item, this uses a fixed 16KB and is typically
+     * within about 0.8% of the exact count.
+     */
+    public long countDistinctApprox() {
+        return countDistinctApprox(selectSelf);
+    }
+
+    /**
+     * Returns an estimate of the number of distinct projections of the provided selector for each item in the result
+     * using a HyperLogLog sketch of the default precision.
+     */
+    public long countDistinctApprox(Function<T, ?> selector) {
+        return countDistinctApprox(selector, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Returns an estimate of the number of distinct projections of the provided selector for each item in the result
+     * using a HyperLogLog sketch of the provided precision.  The sketch uses 2^precision bytes and has a standard error
+     * of about 1.04 / sqrt(2^precision).  The precision must be between 4 and 18.
+     */
+    public long countDistinctApprox(Function<T, ?> selector, int precision) {
+        return distinctSketch(selector, precision).estimate();
+    }
+
+    /**
+     * Returns a HyperLogLog sketch of the default precision holding the projections of the provided selector for each
+     * item in the result.  Sketches can be merged to estimate the distinct count across several results.
+     */
+    public HyperLogLog distinctSketch(Function<T, ?> selector) {
+        return distinctSketch(selector, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Returns a HyperLogLog sketch of the provided precision holding the projections of the provided selector for each
+     * item in the result.  Sketches of the same precision can be merged to estimate the distinct count across several
+     * results.  The precision must be between 4 and 18.
+     */
+    public HyperLogLog distinctSketch(Function<T, ?> selector, int precision) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        drain(item -> sketch.add(selector.apply(item)));
+        return sketch;
+    }
+
+    /**
+     * Returns the n keys obtained by the provided keySelector that occur most often in the result, mapped to the number
+     * of times each occurs and ordered from the most frequent to the least.  Ties go to the key seen first.  Only a
+     * count per key is held, not the items themselves as with groupBy().
+     */
+    public <K> QueryMap<K, Long> topFrequent(int n, Function<T, K> keySelector) {
+        if (n < 0)
+            throw new RuntimeException("TopFrequent n cannot be less than zero.");
+        Map<K, long[]> counts = new LinkedHashMap<K, long[]>();
+        for (T item : this) {
+            K key = keySelector.apply(item);
+            long[] count = counts.get(key);
+            if (count == null)
+                counts.put(key, new long[]{1});
+            else
+                count[0]++;
+        }
+        // a min-heap holding the best n seen so far, where a later key loses a tie to an earlier one.
+        List<Map.Entry<K, long[]>> entries = new ArrayList<Map.Entry<K, long[]>>(counts.entrySet());
+        PriorityQueue<Integer> top = new PriorityQueue<Integer>(Math.max(n, 1), (x, y) -> {
+            int comparison = Long.compare(entries.get(x).getValue()[0], entries.get(y).getValue()[0]);
+            return comparison != 0 ? comparison : Integer.compare(y, x);
+        });
+        for (int i = 0; i < entries.size() && n > 0; i++) {
+            top.add(i);
+            if (top.size() > n)
+                top.poll();
+        }
+        Integer[] order = top.toArray(new Integer[top.size()]);
+        Arrays.sort(order, top.comparator().reversed());
+        QueryMap<K, Long> result = new QueryMap<K, Long>();
+        for (int i : order)
+            result.put(entries.get(i).getKey(), entries.get(i).getValue()[0]);
+        return result;
+    }
+
+    /**
+     * Returns an estimate of the n keys obtained by the provided keySelector that occur most often in the result,
+     * mapped to their estimated counts and ordered from the most frequent to the least.  This uses a FrequencySketch
+     * with the provided number of counters, so memory stays fixed however many distinct keys there are.  Each estimate
+     * can overestimate the true count by at most the total count divided by the capacity.  See frequencySketch().
+     */
+    public <K> QueryMap<K, Long> topFrequentApprox(int n, int capacity, Function<T, K> keySelector) {
+        return frequencySketch(capacity, keySelector).top(n);
+    }
+
+    /**
+     * Returns a FrequencySketch with the provided number of counters holding the keys obtained by the provided
+     * keySelector for each item in the result.  The sketch reports the error bound of each estimated count.
+     */
+    public <K> FrequencySketch<K> frequencySketch(int capacity, Function<T, K> keySelector) {
+        FrequencySketch<K> sketch = new FrequencySketch<K>(capacity);
+        drain(item -> sketch.add(keySelector.apply(item)));
+        return sketch;
     }
 
     /**
      * Returns the sum of the non-null items in the result.  The items must be a Number type or an exception will be thrown.
      */
     public BigDecimal sum() {
+        Object array = getKernelArray();
+        // a double[] is left to sum(selector), which sums the decimal form of each double exactly.
+        if (array instanceof int[] || array instanceof long[])
+            return ArrayKernels.sum(array, kernelFilter);
         return sum(selfAsNumber);
     }
 
@@ -1755,13 +2715,13 @@ public class Query<T> implements Iterable<T> {
      * Returns the sum of the non-null projections of the provided selector for each item in the result.
      */
     public BigDecimal sum(Function<T, ? extends Number> selector) {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (T item : this) {
+        BigDecimal[] sum = {BigDecimal.ZERO};
+        drain(item -> {
             Number number = selector.apply(item);
             if (number != null)
-                sum = sum.add(new BigDecimal(number.toString()));
-        }
-        return sum;
+                sum[0] = sum[0].add(new BigDecimal(number.toString()));
+        });
+        return sum[0];
     }
 
     /**
@@ -1863,12 +2823,129 @@ public class Query<T> implements Iterable<T> {
                 : middle.add(middleLow).divide(new BigDecimal(2), scale, roundingMode);
     }
 
+    /**
+     * Returns a QuantileSketch of the non-null items in the result.  The items must be a Number type or an exception
+     * will be thrown.  Unlike median(), the values are never all held in memory or sorted.
+     */
+    public QuantileSketch quantileSketch() {
+        return quantileSketch(selfAsNumber);
+    }
+
+    /**
+     * Returns a QuantileSketch of the non-null projections of the provided selector for each item in the result.  The
+     * sketch can be queried for any number of quantiles and merged with other sketches.
+     */
+    public QuantileSketch quantileSketch(Function<T, ? extends Number> selector) {
+        QuantileSketch sketch = new QuantileSketch();
+        drain(item -> {
+            Number number = selector.apply(item);
+            if (number != null)
+                sketch.add(number.doubleValue());
+        });
+        return sketch;
+    }
+
+    /**
+     * Returns a QuantileSketch for each key obtained by the provided keySelector holding the non-null projections of
+     * the provided selector for the items with that key.  This is done in a single pass without grouping, so the items
+     * for each key are never held.
+     */
+    public <K> QueryMap<K, QuantileSketch> quantileSketchBy(Function<T, K> keySelector, Function<T, ? extends Number> selector) {
+        QueryMap<K, QuantileSketch> sketches = new QueryMap<K, QuantileSketch>();
+        for (T item : this) {
+            K key = keySelector.apply(item);
+            QuantileSketch sketch = sketches.get(key);
+            if (sketch == null)
+                sketches.put(key, sketch = new QuantileSketch());
+            Number number = selector.apply(item);
+            if (number != null)
+                sketch.add(number.doubleValue());
+        }
+        return sketches;
+    }
+
+    /**
+     * Returns an estimate of the provided percentile of the non-null items in the result, or null if there are none.
+     * The items must be a Number type or an exception will be thrown.  The percentile must be between 0 and 100.
+     */
+    public Double approxPercentile(double percentile) {
+        return approxPercentile(percentile, selfAsNumber);
+    }
+
+    /**
+     * Returns an estimate of the provided percentile of the non-null projections of the provided selector for each
+     * item in the result, or null if there are none.  The percentile must be between 0 and 100.
+     */
+    public Double approxPercentile(double percentile, Function<T, ? extends Number> selector) {
+        if (percentile < 0 || percentile > 100)
+            throw new RuntimeException("ApproxPercentile percentile must be between 0 and 100.");
+        QuantileSketch sketch = quantileSketch(selector);
+        return sketch.isEmpty() ? null : sketch.percentile(percentile);
+    }
+
+    /**
+     * Returns the count, null count, sum, min, max, mean and variance of the items in the result, gathered in a single
+     * pass.  The non-null items must be a Number type or an exception will be thrown.
+     */
+    public QueryStatistics stats() {
+        return stats(t -> t == null ? null : selfAsNumber.apply(t));
+    }
+
+    /**
+     * Returns the count, null count, sum, min, max, mean and variance of the projections of the provided selector for
+     * each item in the result, gathered in a single pass.  This replaces separate calls to count(), sum(), min(), max()
+     * and average(), each of which would run the query again.  Null projections are only counted.
+     */
+    public QueryStatistics stats(Function<T, ? extends Number> selector) {
+        QueryStatistics statistics = new QueryStatistics();
+        drain(item -> statistics.accept(selector.apply(item)));
+        return statistics;
+    }
+
+    /**
+     * Returns the count, sum, min, max, mean and variance of the primitive projections of the provided selector for
+     * each item in the result, gathered in a single pass without boxing each projection.
+     */
+    public QueryStatistics statsDouble(ToDoubleFunction<T> selector) {
+        QueryStatistics statistics = new QueryStatistics();
+        drain(item -> statistics.accept(selector.applyAsDouble(item)));
+        return statistics;
+    }
+
+    /**
+     * Returns the count, sum, min, max, mean and variance of the long projections of the provided selector for each
+     * item in the result, gathered in a single pass without boxing each projection.  The sum, min and max are kept
+     * exactly, as getLongSum(), getLongMin() and getLongMax() return them.
+     */
+    public QueryStatistics statsLong(ToLongFunction<T> selector) {
+        QueryStatistics statistics = new QueryStatistics();
+        drain(item -> statistics.accept(selector.applyAsLong(item)));
+        return statistics;
+    }
+
+    /**
+     * Returns the statistics of the projections of the provided selector for the items with each key obtained by the
+     * provided keySelector, gathered in a single pass without grouping the items.
+     */
+    public <K> QueryMap<K, QueryStatistics> statsBy(Function<T, K> keySelector, Function<T, ? extends Number> selector) {
+        QueryMap<K, QueryStatistics> statistics = new QueryMap<K, QueryStatistics>();
+        for (T item : this) {
+            K key = keySelector.apply(item);
+            QueryStatistics keyStatistics = statistics.get(key);
+            if (keyStatistics == null)
+                statistics.put(key, keyStatistics = new QueryStatistics());
+            keyStatistics.accept(selector.apply(item));
+        }
+        return statistics;
+    }
+
     /**
      * Returns the lowest value non-null item in the result.  The item must be a Number type or an exception will be
      * thrown.
      */
     public BigDecimal min() {
-        return min(selfAsNumber);
+        Object array = getKernelArray();
+        return array != null ? kernelExtreme(array, false) : min(selfAsNumber);
     }
 
     /**
@@ -1891,7 +2968,8 @@ public class Query<T> implements Iterable<T> {
      * thrown.
      */
     public BigDecimal max() {
-        return max(selfAsNumber);
+        Object array = getKernelArray();
+        return array != null ? kernelExtreme(array, true) : max(selfAsNumber);
     }
 
     /**
@@ -1909,6 +2987,12 @@ public class Query<T> implements Iterable<T> {
         return maximum;
     }
 
+    private BigDecimal kernelExtreme(Object array, boolean isMax) {
+        Number extreme = ArrayKernels.extreme(array, kernelFilter, isMax);
+        // converted the same way as min(selector) and max(selector), so NaN and infinity throw the same exception.
+        return extreme != null ? new BigDecimal(extreme.toString()) : null;
+    }
+
     //
     // Other operators
     //
@@ -1921,6 +3005,109 @@ public class Query<T> implements Iterable<T> {
         return condition ? doThis.apply(this) : new Query<T>(getSizeSupplier(), getSourceReset(), this);
     }
 
+    /**
+     * Splits the result into the provided number of linked Query objects that share a single iteration of this one.
+     * Each item is fetched once and buffered only until every fork has moved past it, so an expensive chain can feed
+     * several terminals or sub-chains while running once.  Each fork can only be iterated once, and a fork that is
+     * never iterated holds back the buffer.  The count must be greater than zero.
+     */
+    public QueryList<Query<T>> fork(int count) {
+        return fork(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Splits the result into the provided number of linked Query objects that share a single iteration of this one,
+     * holding at most the provided number of items in the buffer between the fastest and slowest fork.  Iterating a
+     * fork further ahead than that throws an exception rather than buffering without bound.  The count and
+     * bufferLimit must be greater than zero.
+     */
+    public QueryList<Query<T>> fork(int count, int bufferLimit) {
+        if (count <= 0)
+            throw new RuntimeException("Fork count must be greater than zero.");
+        if (bufferLimit <= 0)
+            throw new RuntimeException("Fork bufferLimit must be greater than zero.");
+        ForkIterator.Buffer<T> buffer = new ForkIterator.Buffer<T>(this::iterator, count, bufferLimit);
+        QueryList<Query<T>> forks = new QueryList<Query<T>>();
+        forks.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            int fork = i;
+            forks.add(new Query<T>(getSizeSupplier(), getSourceReset(), () -> new ForkIterator<T>(buffer, fork)));
+        }
+        return forks;
+    }
+
+    /**
+     * Runs each of the provided consumers on its own thread against a Query that is fed by a single iteration of this
+     * one, and returns once every consumer has finished.  The result is pulled on the calling thread and handed to
+     * each consumer in blocks through a bounded queue, so a slow consumer holds back the others rather than letting
+     * the buffer grow.  A consumer that stops early, such as with first() or take(), no longer receives items.  Each
+     * consumer's Query can only be iterated once, and the items must be safe to share between threads.  If the source
+     * or any consumer throws, the first exception is rethrown once every consumer has finished.
+     */
+    @SafeVarargs
+    public final void multicast(Consumer<Query<T>>... consumers) {
+        int branches = consumers.length;
+        List<MulticastIterator<T>> channels = new ArrayList<MulticastIterator<T>>(branches);
+        List<Thread> threads = new ArrayList<Thread>(branches);
+        Throwable[] errors = new Throwable[branches];
+        for (int i = 0; i < branches; i++) {
+            int branch = i;
+            MulticastIterator<T> channel = new MulticastIterator<T>(MULTICAST_QUEUE_BLOCKS);
+            Query<T> query = new Query<T>(getSizeSupplier(), getSourceReset(), channel::open);
+            channels.add(channel);
+            threads.add(new Thread(() -> {
+                try {
+                    consumers[branch].accept(query);
+                }
+                catch (Throwable e) {
+                    errors[branch] = e;
+                }
+                finally {
+                    channel.close();
+                }
+            }, "query-multicast-" + i));
+        }
+        // the channels are always ended, even on an Error, or the branch threads would wait on them forever.
+        Throwable sourceError = null;
+        try {
+            for (Thread thread : threads)
+                thread.start();
+            drainBlocks((buffer, count) -> {
+                // each block is handed to every branch, so it must be a fresh copy that nothing writes to again.
+                Object[] block = Arrays.copyOf(buffer, count);
+                boolean isAnyOpen = false;
+                for (MulticastIterator<T> channel : channels)
+                    isAnyOpen |= channel.offer(block);
+                return isAnyOpen;
+            });
+        }
+        catch (Throwable e) {
+            sourceError = e;
+        }
+        finally {
+            for (MulticastIterator<T> channel : channels)
+                channel.end(sourceError);
+        }
+        try {
+            for (Thread thread : threads)
+                thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        Throwable failure = sourceError;
+        for (int i = 0; failure == null && i < branches; i++)
+            failure = errors[i];
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException)failure;
+        if (failure instanceof Error)
+            throw (Error)failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
+    }
+
     /**
      * Returns true if the length of the provided items is equal to the length of the source and each item in both
      * sequences is equal to the item sharing its index.
@@ -2132,6 +3319,33 @@ public class Query<T> implements Iterable<T> {
 
     private Supplier<Integer> unknownSize = () -> null;
 
+    // The number of blocks a multicast consumer can fall behind before the producer waits for it to catch up.
+    private static final int MULTICAST_QUEUE_BLOCKS = 16;
+
+    // The size at or below which a side of a join is small enough for a nested loop to beat building a hash table.
+    private static final int NESTED_LOOP_JOIN_LIMIT = 8;
+
+    // The most a buffer or hash table is presized for from an upper bound alone, or from a hint with no upper bound to
+    // check it against, past which growing as needed costs less than allocating for items that may never come.
+    private static final int PRESIZE_LIMIT = 1 << 16;
+
+    private static void validateTimeWindow(long size, long slide, long allowedLateness) {
+        if (size <= 0)
+            throw new RuntimeException("WindowByTime size must be greater than zero.");
+        if (slide <= 0)
+            throw new RuntimeException("WindowByTime slide must be greater than zero.");
+        if (allowedLateness < 0)
+            throw new RuntimeException("WindowByTime allowedLateness cannot be less than zero.");
+    }
+
+    // Used to build a sizeSupplier for sample operations, which return the whole source when it's smaller.
+    private Supplier<Integer> getSampleSupplier(int sampleSize) {
+        return () -> {
+            Integer size = getSizeSupplier().get();
+            return size == null ? null : Math.min(size, sampleSize);
+        };
+    }
+
     // Used to build a sizeSupplier for skip/take/exclude operations by modifying the previous size when available.
     private Supplier<Integer> getPartitioningSupplier(int startIndex, int endIndex, boolean isTaking) {
         return () -> {
@@ -2147,6 +3361,19 @@ public class Query<T> implements Iterable<T> {
         };
     }
 
+    // Used to build a sizeSupplier for chunk/window operations from the number of windows that fit in the previous
+    // size when available.
+    private Supplier<Integer> getWindowSupplier(int size, int step, boolean isPartialIncluded) {
+        return () -> {
+            Integer sourceSize = getSizeSupplier().get();
+            if (sourceSize == null)
+                return null;
+            if (isPartialIncluded)
+                return (int)(((long)sourceSize + step - 1) / step);
+            return sourceSize < size ? 0 : (sourceSize - size) / step + 1;
+        };
+    }
+
     // Used to build a sizeSupplier for combine/insert operations by adding the sizes together when available.
     private Supplier<Integer> getCombineSupplier(Iterable additions) {
         return () -> {
@@ -2158,6 +3385,81 @@ public class Query<T> implements Iterable<T> {
         };
     }
 
+    // Builds the iterator for a key join with the strategy given by the hint or chosen from the sizes of both sides
+    // as they are when the join runs.
+    private <R, K> Iterator<Tuple<T, R>> newJoinIterator(JoinType joinType, Iterable<R> rightItems, Function<T, K> leftSelector, Function<R, K> rightSelector) {
+        QueryIndex<K, R> index = QueryIndex.find(rightItems, rightSelector);
+        JoinStrategy strategy = planJoin(index != null, rightItems);
+        if (joinStrategyListener != null)
+            joinStrategyListener.accept(strategy);
+        switch (strategy) {
+            case INDEX:
+                return new JoinIterator<T, R>(iterator(), joinType, l -> index.lookup(leftSelector.apply(l)), rightItems);
+            case NESTED_LOOP:
+                return new JoinIterator<T, R>(iterator(), joinType, rightItems.iterator(), leftSelector, rightSelector, findSize(rightItems));
+            case HASH_BUILD_LEFT:
+                return new HashJoinIterator<T, R, K>(iterator(), joinType, rightItems.iterator(), leftSelector, rightSelector);
+            case SORT_MERGE:
+                return newMergeJoinIterator(iterator(), joinType, rightItems.iterator(), leftSelector, rightSelector);
+            default:
+                Integer rightSize = findSize(rightItems);
+                List<R> rights = rightSize != null ? new ArrayList<R>(rightSize) : new ArrayList<R>();
+                Map<K, List<R>> table = new HashMap<K, List<R>>();
+                for (R right : rightItems) {
+                    rights.add(right);
+                    table.computeIfAbsent(rightSelector.apply(right), k -> new ArrayList<R>(1)).add(right);
+                }
+                return new JoinIterator<T, R>(iterator(), joinType, l -> table.getOrDefault(leftSelector.apply(l), Collections.<R>emptyList()), rights);
+        }
+    }
+
+    // The sort-merge strategy is only chosen by a hint, which is the caller's promise that the keys are Comparable with
+    // each other.
+    @SuppressWarnings("unchecked")
+    private static <L, R, K extends Comparable<K>> Iterator<Tuple<L, R>> newMergeJoinIterator(Iterator<L> leftSource, JoinType joinType, Iterator<R> rightSource, Function<L, ?> leftSelector, Function<R, ?> rightSelector) {
+        return new MergeJoinIterator<L, R, K>(leftSource, joinType, rightSource, (Function<L, K>)leftSelector, (Function<R, K>)rightSelector);
+    }
+
+    // Resolves the join strategy hint.  Left to choose, a maintained index is used first.  A tiny known right side is
+    // looped over, since hashing costs more than it saves.  Otherwise the hash table is built from the left side only
+    // when both sizes are known and the left side is smaller, since building it holds back every result until both
+    // sides are read.  The right side is built from otherwise, which keeps the left side streaming.
+    private JoinStrategy planJoin(boolean isIndexed, Iterable<?> rightItems) {
+        if (joinStrategy != JoinStrategy.AUTO && (joinStrategy != JoinStrategy.INDEX || isIndexed))
+            return joinStrategy;
+        if (isIndexed)
+            return JoinStrategy.INDEX;
+        Integer rightSize = findSize(rightItems);
+        Integer leftSize = getSizeSupplier().get();
+        if (rightSize != null && (rightSize <= NESTED_LOOP_JOIN_LIMIT
+                || leftSize != null && (long)leftSize * rightSize <= NESTED_LOOP_JOIN_LIMIT * NESTED_LOOP_JOIN_LIMIT))
+            return JoinStrategy.NESTED_LOOP;
+        if (leftSize != null && rightSize != null && leftSize < rightSize)
+            return JoinStrategy.HASH_BUILD_LEFT;
+        return JoinStrategy.HASH_BUILD_RIGHT;
+    }
+
+    // Supplies the source in the order of a sorted index on it by this exact selector, if there is one at the time, so
+    // that ordering by the selector can skip the sort.
+    private <S extends Comparable<S>> Supplier<Iterator<T>> getIndexOrderSupplier(Function<T, S> selector, boolean isDescending, boolean isNullsFirst) {
+        return () -> {
+            QuerySortedIndex<S, T> index = QuerySortedIndex.find(source, selector);
+            return index != null ? index.orderedIterator(isDescending, isNullsFirst) : null;
+        };
+    }
+
+    // Used to build a sizeSupplier for semi-joins and anti-joins.  The size is only known when the rightItems are
+    // known to be empty, which keeps nothing from a semi-join and everything from an anti-join.  Otherwise it is at
+    // most the size of the source, as for where().
+    private Supplier<Integer> getSemiJoinSupplier(Iterable<?> rightItems, boolean isInclusive) {
+        return new SizeBound(() -> {
+            Integer rightSize = findSize(rightItems);
+            if (rightSize == null || rightSize != 0)
+                return null;
+            return isInclusive ? Integer.valueOf(0) : getSizeSupplier().get();
+        }, this::getUpperBound, null);
+    }
+
     // Used to build a sizeSupplier for group join operations based on the join type and the left size when available.
     private Supplier<Integer> getGroupJoinSupplier(JoinType joinType) {
         return () -> joinType == JoinType.LEFT ? getSizeSupplier().get() : null;
@@ -2183,6 +3485,67 @@ public class Query<T> implements Iterable<T> {
         };
     }
 
+    // Used by the terminal operators to drain the query a block at a time.  The buffer is no larger than the query when
+    // its size is known so that small queries don't pay for a full block.
+    private Object[] newBatchBuffer() {
+        Integer size = getSizeSupplier().get();
+        return new Object[size != null ? Math.max(Math.min(size, BatchIterator.BATCH_SIZE), 1) : BatchIterator.BATCH_SIZE];
+    }
+
+    // Runs the provided action on each item, drained from the query a block at a time.
+    @SuppressWarnings("unchecked")
+    private void drain(Consumer<T> action) {
+        drainBlocks((block, count) -> {
+            for (int i = 0; i < count; i++)
+                action.accept((T)block[i]);
+            return true;
+        });
+    }
+
+    // Hands the query to the provided action a block at a time until it is exhausted or the action returns false.
+    // The same buffer is reused for every block.
+    private void drainBlocks(BlockAction action) {
+        Object[] buffer = newBatchBuffer();
+        BatchIterator<T> batches = BatchIterator.of(iterator());
+        for (int count; (count = batches.fill(buffer)) > 0; )
+            if (!action.accept(buffer, count))
+                return;
+    }
+
+    // Copies the query into an array that was sized from the sizeSupplier.
+    private void fillArray(Object[] array) {
+        int[] index = {0};
+        drainBlocks((block, count) -> {
+            System.arraycopy(block, 0, array, index[0], count);
+            index[0] += count;
+            return true;
+        });
+    }
+
+    // Receives the first count items of the block from drainBlocks(), returning false to stop the drain early.
+    private interface BlockAction {
+        boolean accept(Object[] block, int count);
+    }
+
+    // The sizeSupplier of an operator whose exact size is unknown but bounded.  The exact size is delegated so that a
+    // hint placed on a query of known size leaves that size in place.
+    private static class SizeBound implements Supplier<Integer> {
+        private Supplier<Integer> exact;
+        private Supplier<Integer> upperBound;
+        private Supplier<Integer> hint;
+
+        private SizeBound(Supplier<Integer> exact, Supplier<Integer> upperBound, Supplier<Integer> hint) {
+            this.exact = exact;
+            this.upperBound = upperBound;
+            this.hint = hint;
+        }
+
+        @Override
+        public Integer get() {
+            return exact.get();
+        }
+    }
+
     // wraps the query as a collection to easily pass size information.  if the query has an unknown size then an
     // exception is likely to be thrown.
     private Collection<T> asCollection() {
@@ -2200,6 +3563,13 @@ public class Query<T> implements Iterable<T> {
                     throw new RuntimeException("Unexpected use of query.asCollection() when query has no size!");
                 return size;
             }
+
+            // collection constructors copy through toArray(), so route it through the batched toArray() of the query.
+            @Override
+            @SuppressWarnings("NullableProblems")
+            public Object[] toArray() {
+                return Query.this.toArray();
+            }
         };
     }
 }
@@ -0,0 +1,77 @@
+package simpkins.query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Collectors for gathering a Stream into the collections of this library, the same as Query.toList(), toSet(), map()
+ * and groupBy() would.  Each keeps the encounter order of the stream, including when it runs in parallel.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public final class QueryCollectors {
+    private QueryCollectors() {
+    }
+
+    public static <T> Collector<T, ?, QueryList<T>> toQueryList() {
+        return Collector.of(QueryList<T>::new, List::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    public static <T> Collector<T, ?, QuerySet<T>> toQuerySet() {
+        return Collector.of(QuerySet<T>::new, QuerySet::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Returns a Collector into a QueryMap with the key defined by the keySelector and the value defined by the
+     * valueSelector.  Each key selected must be unique or the mapping will fail.
+     */
+    public static <T, K, V> Collector<T, ?, QueryMap<K, V>> toQueryMap(Function<T, K> keySelector, Function<T, V> valueSelector) {
+        return Collector.of(QueryMap<K, V>::new, (map, item) -> putUnique(map, keySelector.apply(item), valueSelector.apply(item)), (left, right) -> {
+            for (Map.Entry<K, V> entry : right.entrySet())
+                putUnique(left, entry.getKey(), entry.getValue());
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Returns a Collector into a QueryGroup with the key defined by the keySelector and the values as the items
+     * themselves.
+     */
+    public static <T, K> Collector<T, ?, QueryGroup<K, T>> groupBy(Function<T, K> keySelector) {
+        return groupBy(keySelector, t -> t);
+    }
+
+    /**
+     * Returns a Collector into a QueryGroup with the key defined by the keySelector and the values defined by the
+     * valueSelector.
+     */
+    public static <T, K, V> Collector<T, ?, QueryGroup<K, V>> groupBy(Function<T, K> keySelector, Function<T, V> valueSelector) {
+        return Collector.of(QueryGroup<K, V>::new, (group, item) -> {
+            K key = keySelector.apply(item);
+            if (!group.containsKey(key))
+                group.put(key, new QueryList<V>());
+            group.get(key).add(valueSelector.apply(item));
+        }, (left, right) -> {
+            for (Map.Entry<K, QueryList<V>> entry : right.entrySet()) {
+                if (left.containsKey(entry.getKey()))
+                    left.get(entry.getKey()).addAll(entry.getValue());
+                else
+                    left.put(entry.getKey(), entry.getValue());
+            }
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static <K, V> void putUnique(QueryMap<K, V> map, K key, V value) {
+        if (map.containsKey(key))
+            throw new RuntimeException("keySelector returning duplicate key.");
+        map.put(key, value);
+    }
+}
@@ -0,0 +1,102 @@
+package simpkins.query;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Fuses a run of where() and select() stages into a single MethodHandle taking an item and returning its projection
+// through every stage, or SKIP if a stage filters it out.  The combinators for each shape of stages are built once and
+// cached with the lambdas left as leading parameters, so compiling another query of the same shape only binds its
+// lambdas.  Once the bound handle is hot the JVM customizes it to those lambdas, which turns each stage into a
+// monomorphic call that can be inlined, however many other lambdas the same operators have seen elsewhere.
+final class QueryCompiler {
+    // Returned by a fused handle for an item that a stage filtered out.
+    static final Object SKIP = new Object();
+
+    // Plenty for the shapes a program actually runs, while a program building shapes dynamically can't grow the cache
+    // without limit.  Shapes past the limit are still compiled, just not cached.
+    private static final int MAX_CACHED_SHAPES = 256;
+
+    private static final MethodHandle TEST;
+    private static final MethodHandle APPLY;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            TEST = lookup.findVirtual(Predicate.class, "test", MethodType.methodType(boolean.class, Object.class));
+            APPLY = lookup.findVirtual(Function.class, "apply", MethodType.methodType(Object.class, Object.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final Map<String, MethodHandle> shapes = new ConcurrentHashMap<String, MethodHandle>();
+
+    private QueryCompiler() {
+    }
+
+    // Returns a handle of type (Object)Object running an item through the stages in order.  Each stage is either a
+    // Predicate, flagged as a filter, or a Function.
+    static MethodHandle compile(List<Object> stages, List<Boolean> isFilter) {
+        StringBuilder shape = new StringBuilder(isFilter.size());
+        for (boolean filter : isFilter)
+            shape.append(filter ? 'w' : 's');
+        String key = shape.toString();
+        MethodHandle template = shapes.get(key);
+        if (template == null) {
+            template = buildTemplate(isFilter);
+            if (shapes.size() < MAX_CACHED_SHAPES)
+                shapes.putIfAbsent(key, template);
+        }
+        return MethodHandles.insertArguments(template, 1, stages.toArray());
+    }
+
+    // Runs an item through a handle returned by compile().
+    static Object apply(MethodHandle fused, Object item) {
+        try {
+            return (Object)fused.invokeExact(item);
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Builds a handle of type (Object item, stage 1, ..., stage n)Object, working back from the last stage so that
+    // each stage wraps the handle for the stages after it.
+    private static MethodHandle buildTemplate(List<Boolean> isFilter) {
+        MethodHandle fused = MethodHandles.identity(Object.class);
+        for (int stage = isFilter.size() - 1; stage >= 0; stage--) {
+            MethodType laterTypes = fused.type();
+            Class<?> stageType = isFilter.get(stage) ? Predicate.class : Function.class;
+            // the type of this stage's handle: the item, this stage, then the stages after it.
+            MethodType type = laterTypes.insertParameterTypes(1, stageType);
+            if (isFilter.get(stage)) {
+                // (item, predicate)boolean, so the test takes the leading arguments of the fused handle.
+                MethodHandle test = MethodHandles.permuteArguments(TEST, MethodType.methodType(boolean.class, Object.class, Predicate.class), 1, 0);
+                MethodHandle pass = MethodHandles.dropArguments(fused, 1, Predicate.class);
+                MethodHandle skip = MethodHandles.dropArguments(MethodHandles.constant(Object.class, SKIP), 0, type.parameterList());
+                fused = MethodHandles.guardWithTest(test, pass, skip);
+            }
+            else {
+                // (function, item, later stages) with the projection passed on as the item, then reordered.
+                MethodHandle project = MethodHandles.collectArguments(fused, 0, APPLY);
+                int[] order = new int[type.parameterCount()];
+                order[0] = 1;
+                order[1] = 0;
+                for (int i = 2; i < order.length; i++)
+                    order[i] = i;
+                fused = MethodHandles.permuteArguments(project, type, order);
+            }
+        }
+        return fused;
+    }
+}
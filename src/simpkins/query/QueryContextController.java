@@ -1,11 +1,13 @@
 package simpkins.query;
 
+import simpkins.query.iterator.BatchIterator;
+
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-public class QueryContextController<T> implements QueryContext<T>, Iterator<T> {
+public class QueryContextController<T> implements QueryContext<T>, BatchIterator<T> {
     private Iterator<T> iterator;
     // we roll over to index=0 when the first object is fetched.
     private int index = -1;
@@ -36,6 +38,15 @@ public class QueryContextController<T> implements QueryContext<T>, Iterator<T> {
         return next;
     }
 
+    // the context is only current for the item just fetched, so items are handed out one at a time.
+    @Override
+    public int fill(Object[] buffer) {
+        if (!hasNext())
+            return 0;
+        buffer[0] = next();
+        return 1;
+    }
+
     @Override
     public int getIndex() {
         return index;
@@ -586,6 +586,56 @@ public class QueryGroup<K, V> extends LinkedHashMap<K, QueryList<V>> implements
         return query().max(selector);
     }
 
+    /**
+     * Returns an estimate of the number of distinct items in each group using a HyperLogLog sketch of the default
+     * precision, mapped by the group key.
+     */
+    public QueryMap<K, Long> countDistinctApprox() {
+        return countDistinctApprox(v -> v, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Returns an estimate of the number of distinct projections of the provided selector for the items in each group
+     * using a HyperLogLog sketch of the provided precision, mapped by the group key.  The precision must be between 4
+     * and 18.
+     */
+    public QueryMap<K, Long> countDistinctApprox(Function<V, ?> selector, int precision) {
+        return map(g -> g.getKey(), g -> g.countDistinctApprox(selector, precision));
+    }
+
+    /**
+     * Returns a HyperLogLog sketch of the provided precision for each group holding the projections of the provided
+     * selector for the items in that group, mapped by the group key.  The sketches can be merged to estimate the
+     * distinct count across any combination of groups.  The precision must be between 4 and 18.
+     */
+    public QueryMap<K, HyperLogLog> distinctSketch(Function<V, ?> selector, int precision) {
+        return map(g -> g.getKey(), g -> g.distinctSketch(selector, precision));
+    }
+
+    /**
+     * Returns a QuantileSketch for each group holding the non-null projections of the provided selector for the items
+     * in that group, mapped by the group key.
+     */
+    public QueryMap<K, QuantileSketch> quantileSketch(Function<V, ? extends Number> selector) {
+        return map(g -> g.getKey(), g -> g.quantileSketch(selector));
+    }
+
+    /**
+     * Returns an estimate of the provided percentile of the non-null projections of the provided selector for the
+     * items in each group, mapped by the group key.  The percentile must be between 0 and 100.
+     */
+    public QueryMap<K, Double> approxPercentile(double percentile, Function<V, ? extends Number> selector) {
+        return map(g -> g.getKey(), g -> g.approxPercentile(percentile, selector));
+    }
+
+    /**
+     * Returns the statistics of the projections of the provided selector for the items in each group, mapped by the
+     * group key.
+     */
+    public QueryMap<K, QueryStatistics> stats(Function<V, ? extends Number> selector) {
+        return map(g -> g.getKey(), g -> g.stats(selector));
+    }
+
     @Override
     public Iterator<QueryGrouping<K, V>> iterator() {
         return new Iterator<QueryGrouping<K, V>>() {
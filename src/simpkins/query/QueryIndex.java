@@ -0,0 +1,260 @@
+package simpkins.query;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A hash index over the items of a QueryList or QuerySet by the key obtained from a keySelector.  It is created with
+ * indexBy() and kept current as items are added, set and removed.  Changes that can't be applied incrementally, such
+ * as sorting or removing through a subList, are detected and the index is rebuilt the next time it is used.  As with
+ * the keys of a HashMap, the key of an indexed item must not change while it is in the collection.
+ *
+ * The predicates returned by equalTo() and in() work like any other predicate, but when one is passed to where() or
+ * first() on the indexed collection the matching items are looked up rather than scanned for.  A join whose right
+ * items are the indexed collection and whose rightSelector is this index's keySelector also looks up its matches.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class QueryIndex<K, T> {
+    private Collection<T> items;
+    private Function<T, K> keySelector;
+    // built by the owning collection as soon as the index is created.  A rebuild fills a new map and only then
+    // replaces this one, so a reader on another thread never sees a partly built index.
+    private volatile Map<K, List<T>> buckets;
+    // set when a change couldn't be applied incrementally, so the next lookup rebuilds the index.
+    private volatile boolean isStale = true;
+    // for a QueryList, the modCount the index was last brought up to date with.
+    private int expectedModCount;
+
+    QueryIndex(Collection<T> items, Function<T, K> keySelector) {
+        this.items = items;
+        this.keySelector = Objects.requireNonNull(keySelector);
+    }
+
+    public Function<T, K> getKeySelector() {
+        return keySelector;
+    }
+
+    /**
+     * Returns a Query of the items with the provided key, in their order in the collection.  The lookup is deferred
+     * until the Query is iterated.
+     */
+    public Query<T> get(K key) {
+        return new Query<T>(new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return lookup(key).iterator();
+            }
+
+            @Override
+            public int size() {
+                return lookup(key).size();
+            }
+        });
+    }
+
+    public boolean containsKey(K key) {
+        return !lookup(key).isEmpty();
+    }
+
+    /**
+     * Returns the number of items with the provided key.
+     */
+    public int count(K key) {
+        return lookup(key).size();
+    }
+
+    /**
+     * Returns the distinct keys of the items in the collection.
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(getBuckets().keySet());
+    }
+
+    /**
+     * Returns a predicate matching items whose key equals the provided key.
+     */
+    public Lookup<K, T> equalTo(K key) {
+        return new Lookup<K, T>(this, Collections.singletonList(key));
+    }
+
+    /**
+     * Returns a predicate matching items whose key equals any of the provided keys.  When looked up through where(),
+     * the matching items are returned grouped by key in the order of the keys rather than in collection order.
+     */
+    @SafeVarargs
+    public final Lookup<K, T> in(K... keys) {
+        return in(Arrays.asList(keys));
+    }
+
+    /**
+     * Returns a predicate matching items whose key equals any of the provided keys.  When looked up through where(),
+     * the matching items are returned grouped by key in the order of the keys rather than in collection order.
+     */
+    public Lookup<K, T> in(Iterable<? extends K> keys) {
+        Set<K> distinct = new LinkedHashSet<K>();
+        for (K key : keys)
+            distinct.add(key);
+        return new Lookup<K, T>(this, new ArrayList<K>(distinct));
+    }
+
+    // Returns the items in the collection with the provided key.  The returned list must not be modified.
+    List<T> lookup(K key) {
+        List<T> bucket = getBuckets().get(key);
+        return bucket != null ? bucket : Collections.<T>emptyList();
+    }
+
+    // Returns the buckets by key, brought up to date.
+    Map<K, List<T>> getBuckets() {
+        refresh();
+        return buckets;
+    }
+
+    // Creates the map holding the buckets.  A sorted index keeps its buckets in key order.
+    Map<K, List<T>> newBuckets() {
+        return new HashMap<K, List<T>>();
+    }
+
+    // Finds a hash index on the provided items with exactly the provided keySelector, if there is one.
+    @SuppressWarnings("unchecked")
+    static <K, T> QueryIndex<K, T> find(Iterable<T> items, Function<T, K> keySelector) {
+        for (QueryIndex<?, T> index : getIndexes(items))
+            if (index.getClass() == QueryIndex.class && index.keySelector == keySelector)
+                return (QueryIndex<K, T>)index;
+        return null;
+    }
+
+    // Returns the indexes maintained by the provided items, which are only ever a QueryList or QuerySet.
+    static <T> List<QueryIndex<?, T>> getIndexes(Iterable<T> items) {
+        List<QueryIndex<?, T>> indexes = null;
+        if (items instanceof QueryList)
+            indexes = ((QueryList<T>)items).getIndexes();
+        else if (items instanceof QuerySet)
+            indexes = ((QuerySet<T>)items).getIndexes();
+        return indexes != null ? indexes : Collections.<QueryIndex<?, T>>emptyList();
+    }
+
+    //
+    // Maintenance by the owning collection
+    //
+
+    private int modCount() {
+        return items instanceof QueryList ? ((QueryList)items).getModCount() : 0;
+    }
+
+    // Called before the owner changes.  A modCount that moved since the index was last current means the collection
+    // was changed some way the index didn't see.
+    void prepare() {
+        if (modCount() != expectedModCount)
+            isStale = true;
+    }
+
+    // Called after the owner changes and the index has been updated.
+    void sync() {
+        expectedModCount = modCount();
+    }
+
+    // Records an added item.  An item inserted anywhere but the end can only keep the bucket in collection order if
+    // the bucket was empty.
+    void add(T item, boolean isAppended) {
+        if (isStale)
+            return;
+        K key = keySelector.apply(item);
+        List<T> bucket = buckets.get(key);
+        if (bucket == null)
+            buckets.put(key, bucket = new ArrayList<T>(1));
+        else if (!isAppended) {
+            isStale = true;
+            return;
+        }
+        bucket.add(item);
+    }
+
+    // Records a removed item, matched by identity for a list or by equality for a set.  If the same instance is in the
+    // bucket more than once there's no telling which one was removed.
+    void remove(Object item, boolean isByIdentity) {
+        if (isStale)
+            return;
+        @SuppressWarnings("unchecked")
+        K key = keySelector.apply((T)item);
+        List<T> bucket = buckets.get(key);
+        int position = -1;
+        for (int i = 0; bucket != null && i < bucket.size(); i++) {
+            if (isByIdentity ? bucket.get(i) == item : Objects.equals(bucket.get(i), item)) {
+                if (position != -1) {
+                    isStale = true;
+                    return;
+                }
+                position = i;
+            }
+        }
+        if (position == -1) {
+            isStale = true;
+            return;
+        }
+        bucket.remove(position);
+        if (bucket.isEmpty())
+            buckets.remove(key);
+    }
+
+    void clear() {
+        buckets = newBuckets();
+        isStale = false;
+    }
+
+    void refresh() {
+        prepare();
+        if (isStale) {
+            Map<K, List<T>> rebuilt = newBuckets();
+            for (T item : items)
+                rebuilt.computeIfAbsent(keySelector.apply(item), k -> new ArrayList<T>(1)).add(item);
+            buckets = rebuilt;
+            isStale = false;
+        }
+        sync();
+    }
+
+    /**
+     * A predicate that matches items by their key in a QueryIndex, which lets where() and first() on the indexed
+     * collection look the items up instead of scanning for them.
+     */
+    public static class Lookup<K, T> implements Predicate<T> {
+        private QueryIndex<K, T> index;
+        private List<K> keys;
+
+        private Lookup(QueryIndex<K, T> index, List<K> keys) {
+            this.index = index;
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean test(T t) {
+            K key = index.keySelector.apply(t);
+            if (keys.size() == 1)
+                return Objects.equals(key, keys.get(0));
+            for (K k : keys)
+                if (Objects.equals(key, k))
+                    return true;
+            return false;
+        }
+
+        // Returns true if the lookup can stand in for scanning the provided source.
+        boolean isOver(Iterable<?> source) {
+            return source == index.items;
+        }
+
+        // Returns true if the lookup gives its matches in collection order.
+        boolean isOrdered() {
+            return keys.size() <= 1;
+        }
+
+        Iterator<T> iterator() {
+            if (keys.size() == 1)
+                return index.lookup(keys.get(0)).iterator();
+            List<T> matches = new ArrayList<T>();
+            for (K key : keys)
+                matches.addAll(index.lookup(key));
+            return matches.iterator();
+        }
+    }
+}
@@ -226,6 +226,181 @@ public class QueryList<T> extends ArrayList<T> {
         return list;
     }
 
+    //
+    // Indexes
+    //
+
+    // The indexes kept current by this list.  An index belongs to this instance, so it isn't serialized or cloned.
+    private transient List<QueryIndex<?, T>> indexes;
+
+    /**
+     * Creates a hash index over the items in this list by the key obtained from the provided keySelector, or returns
+     * the existing one if this keySelector instance has already been indexed.  The index is kept current as items are
+     * added, set and removed.  Passing its equalTo() or in() predicates to where() or first() looks the matching items
+     * up instead of scanning the list, and a join with this list as the right items uses the index when the
+     * rightSelector is index.getKeySelector().  Replacing items through subList().set() bypasses both the list's
+     * set() and its modCount, so it isn't seen by the index.
+     */
+    public <K> QueryIndex<K, T> indexBy(Function<T, K> keySelector) {
+        QueryIndex<K, T> index = QueryIndex.find(this, keySelector);
+        if (index == null) {
+            index = new QueryIndex<K, T>(this, keySelector);
+            index.refresh();
+            if (indexes == null)
+                indexes = new ArrayList<QueryIndex<?, T>>(1);
+            indexes.add(index);
+        }
+        return index;
+    }
+
+    /**
+     * Creates a sorted index over the items in this list by the natural order of the key obtained from the provided
+     * keySelector, or returns the existing one for this keySelector instance.  Besides the lookups of indexBy(), it
+     * looks up ranges of keys, and orderBy() and orderByDescending() on this list skip their sort when given the same
+     * keySelector instance.
+     */
+    public <K extends Comparable<K>> QuerySortedIndex<K, T> sortedIndexBy(Function<T, K> keySelector) {
+        return sortedIndexBy(keySelector, null);
+    }
+
+    /**
+     * Creates a sorted index over the items in this list by the key obtained from the provided keySelector in the
+     * order of the provided comparator, or returns the existing one for this keySelector and comparator instance.
+     */
+    public <K> QuerySortedIndex<K, T> sortedIndexBy(Function<T, K> keySelector, Comparator<? super K> comparator) {
+        QuerySortedIndex<K, T> index = QuerySortedIndex.find(this, keySelector, comparator);
+        if (index == null) {
+            index = new QuerySortedIndex<K, T>(this, keySelector, comparator);
+            index.refresh();
+            if (indexes == null)
+                indexes = new ArrayList<QueryIndex<?, T>>(1);
+            indexes.add(index);
+        }
+        return index;
+    }
+
+    /**
+     * Stops maintaining the provided index.  Returns true if it was an index of this list.
+     */
+    public boolean dropIndex(QueryIndex<?, T> index) {
+        boolean isDropped = indexes != null && indexes.remove(index);
+        if (indexes != null && indexes.isEmpty())
+            indexes = null;
+        return isDropped;
+    }
+
+    List<QueryIndex<?, T>> getIndexes() {
+        return indexes;
+    }
+
+    int getModCount() {
+        return modCount;
+    }
+
+    private void prepareIndexes() {
+        for (QueryIndex<?, T> index : indexes)
+            index.prepare();
+    }
+
+    private void syncIndexes() {
+        for (QueryIndex<?, T> index : indexes)
+            index.sync();
+    }
+
+    @Override
+    public boolean add(T item) {
+        if (indexes == null)
+            return super.add(item);
+        prepareIndexes();
+        super.add(item);
+        for (QueryIndex<?, T> index : indexes)
+            index.add(item, true);
+        syncIndexes();
+        return true;
+    }
+
+    @Override
+    public void add(int position, T item) {
+        if (indexes == null) {
+            super.add(position, item);
+            return;
+        }
+        prepareIndexes();
+        super.add(position, item);
+        for (QueryIndex<?, T> index : indexes)
+            index.add(item, position == size() - 1);
+        syncIndexes();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> items) {
+        if (indexes == null)
+            return super.addAll(items);
+        prepareIndexes();
+        int start = size();
+        boolean isChanged = super.addAll(items);
+        for (int i = start; i < size(); i++)
+            for (QueryIndex<?, T> index : indexes)
+                index.add(get(i), true);
+        syncIndexes();
+        return isChanged;
+    }
+
+    @Override
+    public T set(int position, T item) {
+        if (indexes == null)
+            return super.set(position, item);
+        prepareIndexes();
+        T previous = super.set(position, item);
+        for (QueryIndex<?, T> index : indexes) {
+            index.remove(previous, true);
+            index.add(item, position == size() - 1);
+        }
+        syncIndexes();
+        return previous;
+    }
+
+    @Override
+    public T remove(int position) {
+        if (indexes == null)
+            return super.remove(position);
+        prepareIndexes();
+        T removed = super.remove(position);
+        for (QueryIndex<?, T> index : indexes)
+            index.remove(removed, true);
+        syncIndexes();
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        if (indexes == null)
+            return super.remove(item);
+        int position = indexOf(item);
+        if (position < 0)
+            return false;
+        remove(position);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        if (indexes != null) {
+            for (QueryIndex<?, T> index : indexes)
+                index.clear();
+            syncIndexes();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        QueryList<T> clone = (QueryList<T>)super.clone();
+        clone.indexes = null;
+        return clone;
+    }
+
     //
     // Restriction Operators
     //
@@ -283,6 +458,40 @@ public class QueryList<T> extends ArrayList<T> {
         return query().whereNotIn(container);
     }
 
+    /**
+     * Filters the source down to only items whose projection of the provided selector is a key in the provided
+     * JoinIndex.
+     */
+    public <K> Query<T> whereIn(JoinIndex<?, K> index, Function<T, K> selector) {
+        return query().whereIn(index, selector);
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided selector is not a key in the provided
+     * JoinIndex.
+     */
+    public <K> Query<T> whereNotIn(JoinIndex<?, K> index, Function<T, K> selector) {
+        return query().whereNotIn(index, selector);
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided leftKey equals the projection of the
+     * provided rightKey for any of the rightItems, which may be of another type.  The keys of the rightItems are
+     * collected into a hash set once, so each item is checked with a single lookup.
+     */
+    public <R, K> Query<T> whereExists(Iterable<R> rightItems, Function<T, K> leftKey, Function<R, K> rightKey) {
+        return query().whereExists(rightItems, leftKey, rightKey);
+    }
+
+    /**
+     * Filters the source down to only items whose projection of the provided leftKey does not equal the projection of
+     * the provided rightKey for any of the rightItems, which may be of another type.  The keys of the rightItems are
+     * collected into a hash set once, so each item is checked with a single lookup.
+     */
+    public <R, K> Query<T> whereNotExists(Iterable<R> rightItems, Function<T, K> leftKey, Function<R, K> rightKey) {
+        return query().whereNotExists(rightItems, leftKey, rightKey);
+    }
+
     /**
      * Filters the source down only items that can be cast to the provided type and then casts them to that type.
      */
@@ -381,6 +590,108 @@ public class QueryList<T> extends ArrayList<T> {
         return query().exclude(startIndex, endIndex);
     }
 
+    /**
+     * Splits the source into consecutive QueryLists of the provided size.  Each QueryList is sized exactly to its
+     * contents.  The last chunk holds whatever items remain and may be smaller than the size.  The size must be greater
+     * than zero.
+     */
+    public Query<QueryList<T>> chunk(int size) {
+        return query().chunk(size);
+    }
+
+    /**
+     * Splits the source into consecutive read-only List views of the provided size.  A single view over a single
+     * preallocated buffer is reused for every chunk, so each view is only valid until the next chunk is requested and
+     * must be copied if it needs to be kept.  The last chunk holds whatever items remain and may be smaller than the
+     * size.  The size must be greater than zero.
+     */
+    public Query<List<T>> chunkView(int size) {
+        return query().chunkView(size);
+    }
+
+    /**
+     * Slides a window of the provided size across the source, advancing by the provided step each time, and returns
+     * each window as a QueryList.  Only full windows are returned, so any trailing items that can't fill a window are
+     * discarded.  A step larger than the size skips the items in between windows.  The size and step must be greater
+     * than zero.
+     */
+    public Query<QueryList<T>> window(int size, int step) {
+        return query().window(size, step);
+    }
+
+    /**
+     * Slides a window of the provided size across the source, advancing by the provided step each time, and returns
+     * each window as a read-only List view.  A single view over a single preallocated buffer is reused for every
+     * window, so each view is only valid until the next window is requested and must be copied if it needs to be kept.
+     * Only full windows are returned.  The size and step must be greater than zero.
+     */
+    public Query<List<T>> windowView(int size, int step) {
+        return query().windowView(size, step);
+    }
+
+    /**
+     * Pairs each item in the source with the item that follows it into a Tuple.  A source with fewer than two items
+     * returns an empty Query.
+     */
+    public Query<Tuple<T, T>> pairwise() {
+        return query().pairwise();
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items from the source in a single pass, holding
+     * only the sample in memory.  If the source has fewer items than the sample size then every item is returned.  The
+     * sample is not in source order.  The sample size cannot be less than zero.
+     */
+    public Query<T> sample(int sampleSize) {
+        return query().sample(sampleSize);
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items from the source in a single pass, drawing
+     * from the provided Random.  Reservoir sampling with geometric skips (Algorithm L) is used, so only a handful of
+     * random numbers are drawn per sampled item however large the source is.  A seeded Random gives a reproducible
+     * sample, but it continues from where it left off each time the result is iterated.  The sample size cannot be
+     * less than zero.
+     */
+    public Query<T> sample(int sampleSize, Random random) {
+        return query().sample(sampleSize, random);
+    }
+
+    /**
+     * Returns each item in the source independently with the provided probability, in source order and without
+     * buffering.  The probability must be between 0 and 1.
+     */
+    public Query<T> sampleFraction(double probability) {
+        return query().sampleFraction(probability);
+    }
+
+    /**
+     * Returns each item in the source independently with the provided probability, in source order and without
+     * buffering, drawing from the provided Random.  Rather than drawing for every item, the gap to the next sampled
+     * item is drawn from its geometric distribution.  The probability must be between 0 and 1.
+     */
+    public Query<T> sampleFraction(double probability, Random random) {
+        return query().sampleFraction(probability, random);
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items for each key obtained by the provided
+     * keySelector, so that every stratum is represented no matter how rare.  The samples are returned together, one
+     * stratum after another in the order each key was first seen.  The sample size cannot be less than zero.
+     */
+    public <K> Query<T> stratifiedSample(Function<T, K> keySelector, int sampleSize) {
+        return query().stratifiedSample(keySelector, sampleSize);
+    }
+
+    /**
+     * Returns a uniform random sample of up to the provided number of items for each key obtained by the provided
+     * keySelector, drawing from the provided Random.  Each stratum is sampled with its own reservoir in a single pass.
+     * The sample size cannot be less than zero.
+     */
+    public <K> Query<T> stratifiedSample(Function<T, K> keySelector, int sampleSize, Random random) {
+        return query().stratifiedSample(keySelector, sampleSize, random);
+    }
+
     //
     // Ordering Operators
     //
@@ -781,6 +1092,45 @@ public class QueryList<T> extends ArrayList<T> {
         return query().selectGrouped(keySelector, valueSelector);
     }
 
+    /**
+     * Groups items from the source into consecutive, non-overlapping windows of the provided size by the timestamp
+     * obtained from the provided timestampSelector.  Each window is returned as a QueryGrouping keyed by the start of
+     * the window.  Windows start on multiples of the size, and any item with a timestamp behind the highest timestamp
+     * seen so far by at least the size is too late for its window and is dropped.  See windowByTime(timestampSelector,
+     * size, slide, allowedLateness).
+     */
+    public Query<QueryGrouping<Long, T>> windowByTime(ToLongFunction<T> timestampSelector, long size) {
+        return query().windowByTime(timestampSelector, size);
+    }
+
+    /**
+     * Groups items from the source into windows of the provided size by the timestamp obtained from the provided
+     * timestampSelector, starting a new window at every multiple of the slide.  A slide equal to the size gives
+     * tumbling windows, a smaller slide gives overlapping (hopping) windows, and a larger slide leaves gaps between
+     * windows.  Each window is returned as a QueryGrouping keyed by the start of the window.
+     *
+     * The watermark trails the highest timestamp seen so far by the allowedLateness, and each window is returned as
+     * soon as the watermark reaches its end, so only open windows are kept in memory and this can be used on an
+     * unbounded source.  Items that only fall in windows that have already been returned are dropped.  Any windows
+     * still open when the source runs out are returned in order.  The size and slide must be greater than zero, and
+     * the allowedLateness cannot be less than zero.
+     */
+    public Query<QueryGrouping<Long, T>> windowByTime(ToLongFunction<T> timestampSelector, long size, long slide, long allowedLateness) {
+        return query().windowByTime(timestampSelector, size, slide, allowedLateness);
+    }
+
+    /**
+     * Aggregates items from the source into windows of the provided size by the timestamp obtained from the provided
+     * timestampSelector, starting a new window at every multiple of the slide.  Each window starts from the seed
+     * obtained from the provided supplier and applies the provided aggregation as items arrive, so the items
+     * themselves are never held.  Each result is returned as a QueryMapping keyed by the start of the window.  See
+     * windowByTime(timestampSelector, size, slide, allowedLateness) for how windows are closed.
+     */
+    public <A> Query<QueryMapping<Long, A>> windowByTime(ToLongFunction<T> timestampSelector, long size, long slide, long allowedLateness,
+                                                         Supplier<A> seed, BiFunction<A, T, A> aggregation) {
+        return query().windowByTime(timestampSelector, size, slide, allowedLateness, seed, aggregation);
+    }
+
     /**
      * Casts each item in the source to the provided type.
      */
@@ -788,6 +1138,109 @@ public class QueryList<T> extends ArrayList<T> {
         return query().cast(type);
     }
 
+    /**
+     * Applies the provided accumulator to each item in the source from a null seed, like aggregate(), but returns every
+     * intermediate result rather than only the final one.
+     */
+    public <A> Query<A> scan(BiFunction<A, T, A> accumulator) {
+        return query().scan(accumulator);
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a provided seed, like aggregate(), but returns
+     * every intermediate result rather than only the final one.  The seed itself is not returned.
+     */
+    public <A> Query<A> scan(A seed, BiFunction<A, T, A> accumulator) {
+        return query().scan(seed, accumulator);
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a null seed, like aggregateByIndex(), but returns
+     * every intermediate result rather than only the final one.  The index of each item in the source is included to
+     * be used in the accumulator.
+     */
+    public <A> Query<A> scanByIndex(TriFunction<A, T, Integer, A> accumulator) {
+        return query().scanByIndex(accumulator);
+    }
+
+    /**
+     * Applies the provided accumulator to each item in the source from a provided seed, like aggregateByIndex(), but
+     * returns every intermediate result rather than only the final one.  The seed itself is not returned.  The index of
+     * each item in the source is included to be used in the accumulator.
+     */
+    public <A> Query<A> scanByIndex(A seed, TriFunction<A, T, Integer, A> accumulator) {
+        return query().scanByIndex(seed, accumulator);
+    }
+
+    /**
+     * Returns the running combination of the items in the source by the provided accumulator, like scan(), but
+     * computes it with a parallel prefix across the available cores.  The accumulator must be associative.  The source
+     * is materialized into an array each time the query is iterated.
+     */
+    public Query<T> parallelScan(BinaryOperator<T> accumulator) {
+        return query().parallelScan(accumulator);
+    }
+
+    /**
+     * Returns the running combination of the projections of the provided selector for each item in the source by the
+     * provided accumulator, like scan(), but computes it with a parallel prefix across the available cores.  The
+     * accumulator must be associative.  The source is materialized into an array each time the query is iterated.
+     */
+    public <A> Query<A> parallelScan(Function<T, A> selector, BinaryOperator<A> accumulator) {
+        return query().parallelScan(selector, accumulator);
+    }
+
+    /**
+     * Slides a window of the provided size across the source one item at a time and returns the aggregate of each full
+     * window.  A new RollingAggregator is obtained from the provided supplier for each iteration, and it is updated
+     * incrementally as items enter and leave the window rather than recomputed for each window.  The window size must
+     * be greater than zero.
+     */
+    public <A> Query<A> rolling(int windowSize, Supplier<RollingAggregator<T, A>> aggregator) {
+        return query().rolling(windowSize, aggregator);
+    }
+
+    /**
+     * Slides a window of the provided size across the source one item at a time and returns the items of each full
+     * window combined by the provided combiner.  The combiner must be associative, and each item is combined a constant
+     * number of times regardless of the window size.  The window size must be greater than zero.
+     */
+    public Query<T> rolling(int windowSize, BinaryOperator<T> combiner) {
+        return query().rolling(windowSize, combiner);
+    }
+
+    /**
+     * Returns the sum of the projections of the provided selector for each full window of the provided size, sliding
+     * one item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingSum(int windowSize, ToDoubleFunction<T> selector) {
+        return query().rollingSum(windowSize, selector);
+    }
+
+    /**
+     * Returns the average of the projections of the provided selector for each full window of the provided size,
+     * sliding one item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingAverage(int windowSize, ToDoubleFunction<T> selector) {
+        return query().rollingAverage(windowSize, selector);
+    }
+
+    /**
+     * Returns the lowest projection of the provided selector for each full window of the provided size, sliding one
+     * item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingMin(int windowSize, ToDoubleFunction<T> selector) {
+        return query().rollingMin(windowSize, selector);
+    }
+
+    /**
+     * Returns the highest projection of the provided selector for each full window of the provided size, sliding one
+     * item at a time.  The window size must be greater than zero.
+     */
+    public Query<Double> rollingMax(int windowSize, ToDoubleFunction<T> selector) {
+        return query().rollingMax(windowSize, selector);
+    }
+
     //
     // Application Operators
     //
@@ -827,6 +1280,22 @@ public class QueryList<T> extends ArrayList<T> {
     // Join Operators
     //
 
+    /**
+     * Returns a query of this QueryList with the provided strategy forced onto the joins by key selectors called on it,
+     * in place of the strategy they would choose from the sizes of both sides.
+     */
+    public Query<T> withJoinStrategy(JoinStrategy strategy) {
+        return query().withJoinStrategy(strategy);
+    }
+
+    /**
+     * Returns a query of this QueryList with the provided listener told the strategy of each join by key selectors called
+     * on it whenever the join runs.
+     */
+    public Query<T> onJoinStrategy(Consumer<JoinStrategy> listener) {
+        return query().onJoinStrategy(listener);
+    }
+
     /**
      * Inner joins the source as left with the provided rightItems into a Tuple wherever the projection of a left
      * item's leftSelector equals the projection of right item's rightSelector.
@@ -891,6 +1360,109 @@ public class QueryList<T> extends ArrayList<T> {
         return query().join(joinType, rightItems, matcher, joiner);
     }
 
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into a Tuple wherever the projection of
+     * a left item's leftSelector is the key of an indexed item.
+     */
+    public <R, K> Query<Tuple<T, R>> join(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return query().join(rightIndex, leftSelector);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into a Tuple
+     * wherever the projection of a left item's leftSelector is the key of an indexed item.  Unmatched right items are
+     * grouped by key.
+     */
+    public <R, K> Query<Tuple<T, R>> join(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return query().join(joinType, rightIndex, leftSelector);
+    }
+
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into the joiner projection wherever the
+     * projection of a left item's leftSelector is the key of an indexed item.
+     */
+    public <K, R, S> Query<S> join(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, R, S> joiner) {
+        return query().join(rightIndex, leftSelector, joiner);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into the
+     * joiner projection wherever the projection of a left item's leftSelector is the key of an indexed item.
+     * Unmatched right items are grouped by key.
+     */
+    public <K, R, S> Query<S> join(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, R, S> joiner) {
+        return query().join(joinType, rightIndex, leftSelector, joiner);
+    }
+
+    /**
+     * Inner joins the source as left with the provided rightItems into a Tuple wherever the projection of a left
+     * item's leftValue falls between the projections of a right item's rightLow and rightHigh, both inclusive.  The
+     * right items are put in an interval tree so each left item finds its matches without a scan.  Matches for each
+     * left item are in the order of the right items, as with a join by matcher.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinBetween(Iterable<R> rightItems, Function<T, S> leftValue, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return query().joinBetween(rightItems, leftValue, rightLow, rightHigh);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the provided rightItems into a Tuple wherever the
+     * projection of a left item's leftValue falls between the projections of a right item's rightLow and rightHigh,
+     * both inclusive.  The right items are put in an interval tree so each left item finds its matches without a
+     * scan.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinBetween(JoinType joinType, Iterable<R> rightItems, Function<T, S> leftValue, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return query().joinBetween(joinType, rightItems, leftValue, rightLow, rightHigh);
+    }
+
+    /**
+     * Inner joins the source as left with the provided rightItems into a Tuple wherever the range of a left item from
+     * leftLow to leftHigh overlaps the range of a right item from rightLow to rightHigh, all inclusive.  The right
+     * items are put in an interval tree so each left item finds its matches without a scan.  Matches for each left
+     * item are in the order of the right items, as with a join by matcher.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinOverlapping(Iterable<R> rightItems, Function<T, S> leftLow, Function<T, S> leftHigh, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return query().joinOverlapping(rightItems, leftLow, leftHigh, rightLow, rightHigh);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the provided rightItems into a Tuple wherever the
+     * range of a left item from leftLow to leftHigh overlaps the range of a right item from rightLow to rightHigh, all
+     * inclusive.  The right items are put in an interval tree so each left item finds its matches without a scan.
+     */
+    public <R, S extends Comparable<S>> Query<Tuple<T, R>> joinOverlapping(JoinType joinType, Iterable<R> rightItems, Function<T, S> leftLow, Function<T, S> leftHigh, Function<R, S> rightLow, Function<R, S> rightHigh) {
+        return query().joinOverlapping(joinType, rightItems, leftLow, leftHigh, rightLow, rightHigh);
+    }
+
+    /**
+     * Inner joins the source against two dimensions in a single pass into a Triple of each source item and its
+     * matches.  A source item matches a dimension item wherever the projection of its key selector for that dimension
+     * equals the projection of the dimension item's key selector.  A hash table of each dimension is built once and
+     * every source item probes them all without any intermediate Tuple.
+     */
+    public <A, B, K1, K2> Query<Triple<T, A, B>> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector) {
+        return query().starJoin(first, firstKey, firstSelector, second, secondKey, secondSelector);
+    }
+
+    /**
+     * Inner joins the source against two dimensions in a single pass into the joiner projection of each source item
+     * and its matches.  A source item matches a dimension item wherever the projection of its key selector for that
+     * dimension equals the projection of the dimension item's key selector.  A hash table of each dimension is built
+     * once and every source item probes them all without any intermediate Tuple.
+     */
+    public <A, B, K1, K2, S> Query<S> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector, TriFunction<T, A, B, S> joiner) {
+        return query().starJoin(first, firstKey, firstSelector, second, secondKey, secondSelector, joiner);
+    }
+
+    /**
+     * Inner joins the source against three dimensions in a single pass into the joiner projection of each source item
+     * and its matches.  A source item matches a dimension item wherever the projection of its key selector for that
+     * dimension equals the projection of the dimension item's key selector.  A hash table of each dimension is built
+     * once and every source item probes them all without any intermediate Tuple.
+     */
+    public <A, B, C, K1, K2, K3, S> Query<S> starJoin(Iterable<A> first, Function<T, K1> firstKey, Function<A, K1> firstSelector, Iterable<B> second, Function<T, K2> secondKey, Function<B, K2> secondSelector, Iterable<C> third, Function<T, K3> thirdKey, Function<C, K3> thirdSelector, QuadFunction<T, A, B, C, S> joiner) {
+        return query().starJoin(first, firstKey, firstSelector, second, secondKey, secondSelector, third, thirdKey, thirdSelector, joiner);
+    }
+
     /**
      * Inner joins the source as left with the provided rightItems into a Tuple wherever the projection of a left
      * item's leftSelector equals the projection of right item's rightSelector.  Joined right items are grouped in a
@@ -961,6 +1533,42 @@ public class QueryList<T> extends ArrayList<T> {
         return query().groupJoin(joinType, rightItems, matcher, joiner);
     }
 
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into a Tuple wherever the projection of
+     * a left item's leftSelector is the key of an indexed item.  Joined right items are grouped in a QueryList for
+     * each left item.
+     */
+    public <R, K> Query<Tuple<T, QueryList<R>>> groupJoin(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return query().groupJoin(rightIndex, leftSelector);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into a Tuple
+     * wherever the projection of a left item's leftSelector is the key of an indexed item.  Joined right items are
+     * grouped in a QueryList for each left item.
+     */
+    public <R, K> Query<Tuple<T, QueryList<R>>> groupJoin(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector) {
+        return query().groupJoin(joinType, rightIndex, leftSelector);
+    }
+
+    /**
+     * Inner joins the source as left with the items of the provided JoinIndex into the joiner projection wherever the
+     * projection of a left item's leftSelector is the key of an indexed item.  Joined right items are grouped in a
+     * QueryList for each left item.
+     */
+    public <K, R, S> Query<S> groupJoin(JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, QueryList<R>, S> joiner) {
+        return query().groupJoin(rightIndex, leftSelector, joiner);
+    }
+
+    /**
+     * Joins according to the given joinType the source as left with the items of the provided JoinIndex into the
+     * joiner projection wherever the projection of a left item's leftSelector is the key of an indexed item.  Joined
+     * right items are grouped in a QueryList for each left item.
+     */
+    public <K, R, S> Query<S> groupJoin(JoinType joinType, JoinIndex<R, K> rightIndex, Function<T, K> leftSelector, BiFunction<T, QueryList<R>, S> joiner) {
+        return query().groupJoin(joinType, rightIndex, leftSelector, joiner);
+    }
+
     /**
      * Inner joins the source as left with the provided rightItems into a Tuple where the left and right items share
      * the same index.
@@ -1160,6 +1768,38 @@ public class QueryList<T> extends ArrayList<T> {
         return toArray(array);
     }
 
+    /**
+     * Returns the projection of the provided selector for each item as an IntQueryList, which holds the values as
+     * ints rather than boxed.
+     */
+    public IntQueryList toIntList(ToIntFunction<T> selector) {
+        return query().toIntList(selector);
+    }
+
+    /**
+     * Returns the projection of the provided selector for each item as a LongQueryList, which holds the values as
+     * longs rather than boxed.
+     */
+    public LongQueryList toLongList(ToLongFunction<T> selector) {
+        return query().toLongList(selector);
+    }
+
+    /**
+     * Returns the projection of the provided selector for each item as a DoubleQueryList, which holds the values as
+     * doubles rather than boxed.
+     */
+    public DoubleQueryList toDoubleList(ToDoubleFunction<T> selector) {
+        return query().toDoubleList(selector);
+    }
+
+    /**
+     * Returns a JoinIndex of the items in this list by the provided keySelector that can be shared by any number of
+     * joins.  Rebuilding the index reads this list again.
+     */
+    public <K> JoinIndex<T, K> toJoinIndex(Function<T, K> keySelector) {
+        return query().toJoinIndex(keySelector);
+    }
+
     //
     // Element Operators
     //
@@ -1467,6 +2107,76 @@ public class QueryList<T> extends ArrayList<T> {
         return query().aggregateByContext(seed, aggregation);
     }
 
+    /**
+     * Returns an estimate of the number of distinct items in the result using a HyperLogLog sketch of the default
+     * precision.  Unlike distinct().count(), which holds every distinct item, this uses a fixed 16KB and is typically
+     * within about 0.8% of the exact count.
+     */
+    public long countDistinctApprox() {
+        return query().countDistinctApprox();
+    }
+
+    /**
+     * Returns an estimate of the number of distinct projections of the provided selector for each item in the result
+     * using a HyperLogLog sketch of the default precision.
+     */
+    public long countDistinctApprox(Function<T, ?> selector) {
+        return query().countDistinctApprox(selector);
+    }
+
+    /**
+     * Returns an estimate of the number of distinct projections of the provided selector for each item in the result
+     * using a HyperLogLog sketch of the provided precision.  The sketch uses 2^precision bytes and has a standard error
+     * of about 1.04 / sqrt(2^precision).  The precision must be between 4 and 18.
+     */
+    public long countDistinctApprox(Function<T, ?> selector, int precision) {
+        return query().countDistinctApprox(selector, precision);
+    }
+
+    /**
+     * Returns a HyperLogLog sketch of the default precision holding the projections of the provided selector for each
+     * item in the result.  Sketches can be merged to estimate the distinct count across several results.
+     */
+    public HyperLogLog distinctSketch(Function<T, ?> selector) {
+        return query().distinctSketch(selector);
+    }
+
+    /**
+     * Returns a HyperLogLog sketch of the provided precision holding the projections of the provided selector for each
+     * item in the result.  Sketches of the same precision can be merged to estimate the distinct count across several
+     * results.  The precision must be between 4 and 18.
+     */
+    public HyperLogLog distinctSketch(Function<T, ?> selector, int precision) {
+        return query().distinctSketch(selector, precision);
+    }
+
+    /**
+     * Returns the n keys obtained by the provided keySelector that occur most often in the result, mapped to the number
+     * of times each occurs and ordered from the most frequent to the least.  Ties go to the key seen first.  Only a
+     * count per key is held, not the items themselves as with groupBy().
+     */
+    public <K> QueryMap<K, Long> topFrequent(int n, Function<T, K> keySelector) {
+        return query().topFrequent(n, keySelector);
+    }
+
+    /**
+     * Returns an estimate of the n keys obtained by the provided keySelector that occur most often in the result,
+     * mapped to their estimated counts and ordered from the most frequent to the least.  This uses a FrequencySketch
+     * with the provided number of counters, so memory stays fixed however many distinct keys there are.  Each estimate
+     * can overestimate the true count by at most the total count divided by the capacity.  See frequencySketch().
+     */
+    public <K> QueryMap<K, Long> topFrequentApprox(int n, int capacity, Function<T, K> keySelector) {
+        return query().topFrequentApprox(n, capacity, keySelector);
+    }
+
+    /**
+     * Returns a FrequencySketch with the provided number of counters holding the keys obtained by the provided
+     * keySelector for each item in the result.  The sketch reports the error bound of each estimated count.
+     */
+    public <K> FrequencySketch<K> frequencySketch(int capacity, Function<T, K> keySelector) {
+        return query().frequencySketch(capacity, keySelector);
+    }
+
     /**
      * Returns the sum of the non-null items in the result.  The items must be a Number type or an exception will be thrown.
      */
@@ -1549,6 +2259,89 @@ public class QueryList<T> extends ArrayList<T> {
         return query().median(scale, roundingMode, selector);
     }
 
+    /**
+     * Returns a QuantileSketch of the non-null items in the result.  The items must be a Number type or an exception
+     * will be thrown.  Unlike median(), the values are never all held in memory or sorted.
+     */
+    public QuantileSketch quantileSketch() {
+        return query().quantileSketch();
+    }
+
+    /**
+     * Returns a QuantileSketch of the non-null projections of the provided selector for each item in the result.  The
+     * sketch can be queried for any number of quantiles and merged with other sketches.
+     */
+    public QuantileSketch quantileSketch(Function<T, ? extends Number> selector) {
+        return query().quantileSketch(selector);
+    }
+
+    /**
+     * Returns a QuantileSketch for each key obtained by the provided keySelector holding the non-null projections of
+     * the provided selector for the items with that key.  This is done in a single pass without grouping, so the items
+     * for each key are never held.
+     */
+    public <K> QueryMap<K, QuantileSketch> quantileSketchBy(Function<T, K> keySelector, Function<T, ? extends Number> selector) {
+        return query().quantileSketchBy(keySelector, selector);
+    }
+
+    /**
+     * Returns an estimate of the provided percentile of the non-null items in the result, or null if there are none.
+     * The items must be a Number type or an exception will be thrown.  The percentile must be between 0 and 100.
+     */
+    public Double approxPercentile(double percentile) {
+        return query().approxPercentile(percentile);
+    }
+
+    /**
+     * Returns an estimate of the provided percentile of the non-null projections of the provided selector for each
+     * item in the result, or null if there are none.  The percentile must be between 0 and 100.
+     */
+    public Double approxPercentile(double percentile, Function<T, ? extends Number> selector) {
+        return query().approxPercentile(percentile, selector);
+    }
+
+    /**
+     * Returns the count, null count, sum, min, max, mean and variance of the items in the result, gathered in a single
+     * pass.  The non-null items must be a Number type or an exception will be thrown.
+     */
+    public QueryStatistics stats() {
+        return query().stats();
+    }
+
+    /**
+     * Returns the count, null count, sum, min, max, mean and variance of the projections of the provided selector for
+     * each item in the result, gathered in a single pass.  This replaces separate calls to count(), sum(), min(), max()
+     * and average(), each of which would run the query again.  Null projections are only counted.
+     */
+    public QueryStatistics stats(Function<T, ? extends Number> selector) {
+        return query().stats(selector);
+    }
+
+    /**
+     * Returns the count, sum, min, max, mean and variance of the primitive projections of the provided selector for
+     * each item in the result, gathered in a single pass without boxing each projection.
+     */
+    public QueryStatistics statsDouble(ToDoubleFunction<T> selector) {
+        return query().statsDouble(selector);
+    }
+
+    /**
+     * Returns the count, sum, min, max, mean and variance of the long projections of the provided selector for each
+     * item in the result, gathered in a single pass without boxing each projection.  The sum, min and max are kept
+     * exactly, as getLongSum(), getLongMin() and getLongMax() return them.
+     */
+    public QueryStatistics statsLong(ToLongFunction<T> selector) {
+        return query().statsLong(selector);
+    }
+
+    /**
+     * Returns the statistics of the projections of the provided selector for the items with each key obtained by the
+     * provided keySelector, gathered in a single pass without grouping the items.
+     */
+    public <K> QueryMap<K, QueryStatistics> statsBy(Function<T, K> keySelector, Function<T, ? extends Number> selector) {
+        return query().statsBy(keySelector, selector);
+    }
+
     /**
      * Returns the lowest value non-null item in the result.  The item must be a Number type or an exception will be
      * thrown.
@@ -1591,6 +2384,39 @@ public class QueryList<T> extends ArrayList<T> {
         return query().when(condition, doThis);
     }
 
+    /**
+     * Splits the result into the provided number of linked Query objects that share a single iteration of this one.
+     * Each item is fetched once and buffered only until every fork has moved past it, so an expensive chain can feed
+     * several terminals or sub-chains while running once.  Each fork can only be iterated once, and a fork that is
+     * never iterated holds back the buffer.  The count must be greater than zero.
+     */
+    public QueryList<Query<T>> fork(int count) {
+        return query().fork(count);
+    }
+
+    /**
+     * Splits the result into the provided number of linked Query objects that share a single iteration of this one,
+     * holding at most the provided number of items in the buffer between the fastest and slowest fork.  Iterating a
+     * fork further ahead than that throws an exception rather than buffering without bound.  The count and
+     * bufferLimit must be greater than zero.
+     */
+    public QueryList<Query<T>> fork(int count, int bufferLimit) {
+        return query().fork(count, bufferLimit);
+    }
+
+    /**
+     * Runs each of the provided consumers on its own thread against a Query that is fed by a single iteration of this
+     * one, and returns once every consumer has finished.  The result is pulled on the calling thread and handed to
+     * each consumer in blocks through a bounded queue, so a slow consumer holds back the others rather than letting
+     * the buffer grow.  A consumer that stops early, such as with first() or take(), no longer receives items.  Each
+     * consumer's Query can only be iterated once, and the items must be safe to share between threads.  If the source
+     * or any consumer throws, the first exception is rethrown once every consumer has finished.
+     */
+    @SafeVarargs
+    public final void multicast(Consumer<Query<T>>... consumers) {
+        query().multicast(consumers);
+    }
+
     /**
      * Returns true if the length of the provided items is equal to the length of the source and each item in both
      * sequences is equal to the item sharing its index.
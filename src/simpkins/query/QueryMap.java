@@ -18,6 +18,14 @@ public class QueryMap<K, V> extends LinkedHashMap<K, V> implements Iterable<Quer
         super(initialCapacity);
     }
 
+    // Returns the capacity a HashMap or HashSet needs to hold the expected number of entries at the default load factor
+    // without rehashing.
+    static int capacityFor(int expectedSize) {
+        if (expectedSize >= 3 << 28)
+            return Integer.MAX_VALUE;
+        return Math.max((int)(expectedSize / .75f) + 1, 16);
+    }
+
     @SafeVarargs
     public QueryMap(QueryMapping<? extends K, ? extends V>... mappings) {
         super(mappings.length);
@@ -64,6 +72,12 @@ public class QueryMap<K, V> extends LinkedHashMap<K, V> implements Iterable<Quer
         selectAndPut(items, keySelector, valueSelector);
     }
 
+    // For an iterable whose size is only estimated, such as a filtered query.
+    <T> QueryMap(int initialCapacity, Iterable<T> items, Function<T, K> keySelector, Function<T, V> valueSelector) {
+        super(capacityFor(initialCapacity));
+        selectAndPut(items, keySelector, valueSelector);
+    }
+
     private <T> void selectAndPut(Iterable<? extends T> items, Function<T, K> keySelector, Function<T, V> valueSelector) {
         for (T item : items) {
             K key = keySelector.apply(item);
@@ -573,6 +587,14 @@ public class QueryMap<K, V> extends LinkedHashMap<K, V> implements Iterable<Quer
         return query().max(selector);
     }
 
+    /**
+     * Returns the count, null count, sum, min, max, mean and variance of the projections of the provided selector for
+     * each item in the result, gathered in a single pass.
+     */
+    public QueryStatistics stats(Function<QueryMapping<K, V>, ? extends Number> selector) {
+        return query().stats(selector);
+    }
+
     @Override
     public Iterator<QueryMapping<K, V>> iterator() {
         return new Iterator<QueryMapping<K, V>>() {
@@ -0,0 +1,150 @@
+package simpkins.query;
+
+import simpkins.query.iterator.SelectManyIterator;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A sorted index over the items of a QueryList by the key obtained from a keySelector.  It is created with
+ * sortedIndexBy() and maintained the same way as a QueryIndex, but its buckets are kept in key order so that ranges of
+ * keys can be looked up rather than scanned for and the items can be iterated in key order without sorting.  Items
+ * with equal keys stay in their order in the list.
+ *
+ * An index created with the natural ordering of its keys also lets orderBy(), orderByNullsFirst(), orderByDescending()
+ * and orderByDescendingNullsLast() on the list skip their sort when given this index's keySelector.  Null keys are
+ * placed as those methods place them and are never part of a range.  An index created with a comparator leaves null
+ * keys to the comparator.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public class QuerySortedIndex<K, T> extends QueryIndex<K, T> {
+    private Comparator<? super K> comparator;
+    private boolean isNaturalOrder;
+
+    QuerySortedIndex(Collection<T> items, Function<T, K> keySelector, Comparator<? super K> comparator) {
+        super(items, keySelector);
+        this.isNaturalOrder = comparator == null;
+        this.comparator = comparator != null ? comparator : naturalOrderNullsFirst();
+    }
+
+    /**
+     * Returns the comparator the keys are sorted by, or null if they are in their natural order.
+     */
+    public Comparator<? super K> getComparator() {
+        return isNaturalOrder ? null : comparator;
+    }
+
+    /**
+     * Returns a Query of the items with keys between from and to, both inclusive, in key order.  The lookup is
+     * deferred until the Query is iterated.
+     */
+    public Query<T> whereBetween(K from, K to) {
+        return range(() -> getKeyed().subMap(from, true, to, true));
+    }
+
+    /**
+     * Returns a Query of the items with keys less than the provided key, in key order.  The lookup is deferred until
+     * the Query is iterated.
+     */
+    public Query<T> whereLessThan(K key) {
+        return range(() -> getKeyed().headMap(key, false));
+    }
+
+    /**
+     * Returns a Query of the items with keys greater than the provided key, in key order.  The lookup is deferred until
+     * the Query is iterated.
+     */
+    public Query<T> whereGreaterThan(K key) {
+        return range(() -> getKeyed().tailMap(key, false));
+    }
+
+    /**
+     * Returns a Query of all the items in key order, with null keys last in natural order.
+     */
+    public Query<T> ordered() {
+        return new Query<T>(() -> orderedIterator(false, false));
+    }
+
+    /**
+     * Returns a Query of all the items in descending key order, with null keys first in natural order.  Items with
+     * equal keys stay in their order in the list.
+     */
+    public Query<T> orderedDescending() {
+        return new Query<T>(() -> orderedIterator(true, true));
+    }
+
+    /**
+     * Returns the lowest key, or null if there are none.  In natural order null keys aren't counted.
+     */
+    public K firstKey() {
+        NavigableMap<K, List<T>> buckets = getKeyed();
+        return buckets.isEmpty() ? null : buckets.firstKey();
+    }
+
+    /**
+     * Returns the highest key, or null if there are none.  In natural order null keys aren't counted.
+     */
+    public K lastKey() {
+        NavigableMap<K, List<T>> buckets = getKeyed();
+        return buckets.isEmpty() ? null : buckets.lastKey();
+    }
+
+    @Override
+    Map<K, List<T>> newBuckets() {
+        return new TreeMap<K, List<T>>(comparator);
+    }
+
+    private Query<T> range(Supplier<NavigableMap<K, List<T>>> range) {
+        return new Query<T>(() -> new SelectManyIterator<List<T>, T>(range.get().values().iterator(), bucket -> bucket));
+    }
+
+    // Returns the buckets of the non-null keys.  Only an index in natural order knows where null keys are sorted.
+    private NavigableMap<K, List<T>> getKeyed() {
+        NavigableMap<K, List<T>> buckets = (NavigableMap<K, List<T>>)getBuckets();
+        return isNaturalOrder && buckets.containsKey(null) ? buckets.tailMap(null, false) : buckets;
+    }
+
+    // Returns the items in key order, or in descending key order with items of equal keys still in list order.  For
+    // an index in natural order, null keys come first or last as requested.  Otherwise they are left where the
+    // comparator sorted them.
+    Iterator<T> orderedIterator(boolean isDescending, boolean isNullsFirst) {
+        NavigableMap<K, List<T>> keyed = getKeyed();
+        List<T> nulls = isNaturalOrder ? lookup(null) : Collections.<T>emptyList();
+        List<Collection<List<T>>> parts = new ArrayList<Collection<List<T>>>(3);
+        if (isNullsFirst)
+            parts.add(Collections.singletonList(nulls));
+        parts.add((isDescending ? keyed.descendingMap() : keyed).values());
+        if (!isNullsFirst)
+            parts.add(Collections.singletonList(nulls));
+        Iterator<List<T>> buckets = new SelectManyIterator<Collection<List<T>>, List<T>>(parts.iterator(), part -> part);
+        return new SelectManyIterator<List<T>, T>(buckets, bucket -> bucket);
+    }
+
+    // Finds a sorted index in natural order on the provided items with exactly the provided keySelector, if there is
+    // one.
+    @SuppressWarnings("unchecked")
+    static <K, T> QuerySortedIndex<K, T> find(Iterable<T> items, Function<T, K> keySelector) {
+        for (QueryIndex<?, T> index : getIndexes(items))
+            if (index instanceof QuerySortedIndex && index.getKeySelector() == keySelector
+                    && ((QuerySortedIndex<?, T>)index).isNaturalOrder)
+                return (QuerySortedIndex<K, T>)index;
+        return null;
+    }
+
+    // Finds a sorted index on the provided items with exactly the provided keySelector and comparator, if there is
+    // one.  A null comparator matches an index in natural order.
+    @SuppressWarnings("unchecked")
+    static <K, T> QuerySortedIndex<K, T> find(Iterable<T> items, Function<T, K> keySelector, Comparator<? super K> comparator) {
+        for (QueryIndex<?, T> index : getIndexes(items))
+            if (index instanceof QuerySortedIndex && index.getKeySelector() == keySelector
+                    && ((QuerySortedIndex<?, T>)index).getComparator() == comparator)
+                return (QuerySortedIndex<K, T>)index;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> Comparator<K> naturalOrderNullsFirst() {
+        return (x, y) -> x == null ? (y == null ? 0 : -1) : y == null ? 1 : ((Comparable<K>)x).compareTo(y);
+    }
+}
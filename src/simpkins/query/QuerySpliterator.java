@@ -0,0 +1,83 @@
+package simpkins.query;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// A Spliterator over a range of a random access source, split evenly in half by index.  Items are run through the
+// fused where() and select() stages chained onto the source, if any.  Only without a filter among those stages does
+// each split know its exact size.
+@SuppressWarnings({"Convert2Diamond"})
+final class QuerySpliterator<T> implements Spliterator<T> {
+    private List<?> items;
+    private int index;
+    private int fence;
+    // null when the items are handed out as they are.
+    private MethodHandle stages;
+    private int characteristics;
+    private Comparator<? super T> comparator;
+
+    QuerySpliterator(List<?> items, int index, int fence, MethodHandle stages, int characteristics, Comparator<? super T> comparator) {
+        this.items = items;
+        this.index = index;
+        this.fence = fence;
+        this.stages = stages;
+        this.characteristics = characteristics;
+        this.comparator = comparator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (index < fence) {
+            Object item = items.get(index++);
+            if (stages != null && (item = QueryCompiler.apply(stages, item)) == QueryCompiler.SKIP)
+                continue;
+            action.accept((T)item);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachRemaining(Consumer<? super T> action) {
+        int end = fence;
+        for (int i = index; i < end; i++) {
+            Object item = items.get(i);
+            if (stages == null || (item = QueryCompiler.apply(stages, item)) != QueryCompiler.SKIP)
+                action.accept((T)item);
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        int middle = (index + fence) >>> 1;
+        if (middle <= index)
+            return null;
+        Spliterator<T> prefix = new QuerySpliterator<T>(items, index, middle, stages, characteristics, comparator);
+        index = middle;
+        return prefix;
+    }
+
+    // exact when the characteristics include SIZED, otherwise the most items the range can produce.
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return characteristics;
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+        if (!hasCharacteristics(SORTED))
+            throw new IllegalStateException();
+        return comparator;
+    }
+}
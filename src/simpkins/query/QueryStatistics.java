@@ -0,0 +1,258 @@
+package simpkins.query;
+
+/**
+ * Summary statistics gathered in a single pass: the count, null count, sum, min, max, mean and variance of a series of
+ * values.  Values are accumulated as primitive doubles rather than BigDecimals.  The sum is compensated against
+ * rounding error and the variance uses Welford's method, so both stay accurate over long series.  While every value
+ * accepted is integral the sum, min and max are also kept exactly as longs, since a double can't hold a long above
+ * 2^53.  Statistics gathered separately can be combined into the statistics of the whole.
+ */
+@SuppressWarnings({"UnusedDeclaration"})
+public class QueryStatistics {
+    private long count = 0;
+    private long nullCount = 0;
+    private double sum = 0;
+    private double compensation = 0;
+    // the plain sum, which becomes infinite rather than NaN when the compensated sum overflows.
+    private double simpleSum = 0;
+    // set while every value accepted has been integral, and cleared for good by the first that isn't.
+    private boolean isIntegral = true;
+    // the exact sum, min and max while the values are integral.
+    private long longSum = 0;
+    private boolean isLongSumOverflowed = false;
+    private long longMin = 0;
+    private long longMax = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double mean = 0;
+    // the sum of squared differences from the mean.
+    private double squares = 0;
+
+    /**
+     * Adds a value to the statistics.
+     */
+    public QueryStatistics accept(double value) {
+        isIntegral = false;
+        return acceptDouble(value);
+    }
+
+    /**
+     * Adds a value to the statistics, keeping the sum, min and max exact while every value is integral.
+     */
+    public QueryStatistics accept(long value) {
+        if (isIntegral) {
+            if (count == 0 || value < longMin)
+                longMin = value;
+            if (count == 0 || value > longMax)
+                longMax = value;
+            addToLongSum(value);
+        }
+        return acceptDouble(value);
+    }
+
+    private QueryStatistics acceptDouble(double value) {
+        count++;
+        simpleSum += value;
+        addToSum(value);
+        if (count == 1 || value < min)
+            min = value;
+        if (count == 1 || value > max)
+            max = value;
+        double delta = value - mean;
+        mean += delta / count;
+        squares += delta * (value - mean);
+        return this;
+    }
+
+    /**
+     * Adds a value to the statistics, or counts it as a null if it is null.
+     */
+    public QueryStatistics accept(Number value) {
+        if (value == null)
+            return acceptNull();
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return accept(value.longValue());
+        return accept(value.doubleValue());
+    }
+
+    /**
+     * Counts a null value, which takes no part in the other statistics.
+     */
+    public QueryStatistics acceptNull() {
+        nullCount++;
+        return this;
+    }
+
+    /**
+     * Folds the provided statistics into these so that they describe the values accepted by either.
+     */
+    public QueryStatistics combine(QueryStatistics other) {
+        nullCount += other.nullCount;
+        if (other.count == 0)
+            return this;
+        if (count == 0) {
+            count = other.count;
+            sum = other.sum;
+            compensation = other.compensation;
+            simpleSum = other.simpleSum;
+            isIntegral = other.isIntegral;
+            longSum = other.longSum;
+            isLongSumOverflowed = other.isLongSumOverflowed;
+            longMin = other.longMin;
+            longMax = other.longMax;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            squares = other.squares;
+            return this;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        squares += other.squares + delta * delta * count * other.count / total;
+        mean += delta * other.count / total;
+        count = total;
+        simpleSum += other.simpleSum;
+        addToSum(other.sum);
+        addToSum(other.compensation);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        isIntegral &= other.isIntegral;
+        if (isIntegral) {
+            longMin = Math.min(longMin, other.longMin);
+            longMax = Math.max(longMax, other.longMax);
+            isLongSumOverflowed |= other.isLongSumOverflowed;
+            addToLongSum(other.longSum);
+        }
+        return this;
+    }
+
+    private void addToLongSum(long value) {
+        if (isLongSumOverflowed)
+            return;
+        long total = longSum + value;
+        // overflowed if both operands have the sign the total lacks.
+        if (((longSum ^ total) & (value ^ total)) < 0)
+            isLongSumOverflowed = true;
+        else
+            longSum = total;
+    }
+
+    // Neumaier summation.
+    private void addToSum(double value) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value))
+            compensation += (sum - total) + value;
+        else
+            compensation += (value - total) + sum;
+        sum = total;
+    }
+
+    /**
+     * Returns the number of non-null values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getNullCount() {
+        return nullCount;
+    }
+
+    public double getSum() {
+        if (isIntegral && !isLongSumOverflowed)
+            return longSum;
+        double total = sum + compensation;
+        // an infinite value or an overflow makes the compensation NaN, where the plain sum is still correct.
+        if (Double.isNaN(total) && Double.isInfinite(simpleSum))
+            return simpleSum;
+        return total;
+    }
+
+    /**
+     * Returns the exact sum of the values as a long, or null if any value wasn't integral.  An ArithmeticException is
+     * thrown if the sum overflows.
+     */
+    public Long getLongSum() {
+        if (!isIntegral)
+            return null;
+        if (isLongSumOverflowed)
+            throw new ArithmeticException("long overflow");
+        return longSum;
+    }
+
+    /**
+     * Returns the lowest value, or NaN if there are none.
+     */
+    public double getMin() {
+        return isIntegral && count > 0 ? longMin : min;
+    }
+
+    /**
+     * Returns the lowest value exactly as a long, or null if there are none or any value wasn't integral.
+     */
+    public Long getLongMin() {
+        return isIntegral && count > 0 ? longMin : null;
+    }
+
+    /**
+     * Returns the highest value, or NaN if there are none.
+     */
+    public double getMax() {
+        return isIntegral && count > 0 ? longMax : max;
+    }
+
+    /**
+     * Returns the highest value exactly as a long, or null if there are none or any value wasn't integral.
+     */
+    public Long getLongMax() {
+        return isIntegral && count > 0 ? longMax : null;
+    }
+
+    /**
+     * Returns the mean of the values, or NaN if there are none.
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Returns the population variance of the values, or NaN if there are none.
+     */
+    public double getVariance() {
+        return count == 0 ? Double.NaN : squares / count;
+    }
+
+    /**
+     * Returns the sample variance of the values, or NaN if there are fewer than two.
+     */
+    public double getSampleVariance() {
+        return count < 2 ? Double.NaN : squares / (count - 1);
+    }
+
+    /**
+     * Returns the population standard deviation of the values, or NaN if there are none.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the sample standard deviation of the values, or NaN if there are fewer than two.
+     */
+    public double getSampleStandardDeviation() {
+        return Math.sqrt(getSampleVariance());
+    }
+
+    @Override
+    public String toString() {
+        return "QueryStatistics{" +
+                "count=" + count +
+                ", nullCount=" + nullCount +
+                ", sum=" + getSum() +
+                ", min=" + getMin() +
+                ", max=" + getMax() +
+                ", mean=" + getMean() +
+                ", standardDeviation=" + getStandardDeviation() +
+                '}';
+    }
+}
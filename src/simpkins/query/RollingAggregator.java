@@ -0,0 +1,227 @@
+package simpkins.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Maintains an aggregate over a sliding window of items.  Items are added as they enter the window and removed, oldest
+ * first, as they leave it, so the aggregate is updated incrementally rather than recomputed for each window.  An
+ * instance holds the state of a single window, so Query.rolling() takes a Supplier and creates a new one for each
+ * iteration.
+ */
+@SuppressWarnings({"UnusedDeclaration", "Convert2Diamond"})
+public interface RollingAggregator<T, A> {
+    /**
+     * Adds the newest item to the window.
+     */
+    void add(T item);
+
+    /**
+     * Removes the oldest item from the window.  Items are always removed in the order they were added.
+     */
+    void remove(T item);
+
+    /**
+     * Returns the aggregate of the items currently in the window.
+     */
+    A get();
+
+    /**
+     * Sums the projections of the provided selector by adding each item as it enters and subtracting it as it leaves.
+     */
+    static <T> RollingAggregator<T, Double> sum(ToDoubleFunction<T> selector) {
+        return new Sum<T>(selector, false);
+    }
+
+    /**
+     * Averages the projections of the provided selector by maintaining a running sum and count.
+     */
+    static <T> RollingAggregator<T, Double> average(ToDoubleFunction<T> selector) {
+        return new Sum<T>(selector, true);
+    }
+
+    /**
+     * Tracks the lowest projection of the provided selector with a monotonic deque.
+     */
+    static <T> RollingAggregator<T, Double> min(ToDoubleFunction<T> selector) {
+        return new Extreme<T>(selector, false);
+    }
+
+    /**
+     * Tracks the highest projection of the provided selector with a monotonic deque.
+     */
+    static <T> RollingAggregator<T, Double> max(ToDoubleFunction<T> selector) {
+        return new Extreme<T>(selector, true);
+    }
+
+    /**
+     * Combines the items in the window with the provided combiner, which must be associative.
+     */
+    static <T> RollingAggregator<T, T> combining(BinaryOperator<T> combiner) {
+        return new Combining<T, T>(t -> t, combiner);
+    }
+
+    /**
+     * Combines the projections of the provided selector for the items in the window with the provided combiner, which
+     * must be associative.
+     */
+    static <T, A> RollingAggregator<T, A> combining(Function<T, A> selector, BinaryOperator<A> combiner) {
+        return new Combining<T, A>(selector, combiner);
+    }
+
+    // A running sum using Neumaier compensation, so repeatedly adding and subtracting doesn't accumulate rounding error.
+    class Sum<T> implements RollingAggregator<T, Double> {
+        private ToDoubleFunction<T> selector;
+        private boolean isAveraging;
+        private double sum = 0;
+        private double compensation = 0;
+        private int count = 0;
+
+        Sum(ToDoubleFunction<T> selector, boolean isAveraging) {
+            this.selector = selector;
+            this.isAveraging = isAveraging;
+        }
+
+        private void accumulate(double value) {
+            double total = sum + value;
+            if (Math.abs(sum) >= Math.abs(value))
+                compensation += (sum - total) + value;
+            else
+                compensation += (value - total) + sum;
+            sum = total;
+        }
+
+        @Override
+        public void add(T item) {
+            accumulate(selector.applyAsDouble(item));
+            count++;
+        }
+
+        @Override
+        public void remove(T item) {
+            accumulate(-selector.applyAsDouble(item));
+            count--;
+        }
+
+        @Override
+        public Double get() {
+            if (!isAveraging)
+                return sum + compensation;
+            return count == 0 ? null : (sum + compensation) / count;
+        }
+    }
+
+    // A deque of candidate values in monotonic order, each tagged with the sequence number of the item it came from.
+    // A new value evicts every candidate it beats from the tail, and the head leaves once its item leaves the window,
+    // so each value is pushed and popped at most once.
+    class Extreme<T> implements RollingAggregator<T, Double> {
+        private ToDoubleFunction<T> selector;
+        private boolean isMax;
+        private double[] values = new double[16];
+        private long[] sequences = new long[16];
+        private int head = 0;
+        private int length = 0;
+        private long added = 0;
+        private long removed = 0;
+
+        Extreme(ToDoubleFunction<T> selector, boolean isMax) {
+            this.selector = selector;
+            this.isMax = isMax;
+        }
+
+        private int slot(int offset) {
+            return (head + offset) & (values.length - 1);
+        }
+
+        private void grow() {
+            double[] newValues = new double[values.length * 2];
+            long[] newSequences = new long[values.length * 2];
+            for (int i = 0; i < length; i++) {
+                newValues[i] = values[slot(i)];
+                newSequences[i] = sequences[slot(i)];
+            }
+            values = newValues;
+            sequences = newSequences;
+            head = 0;
+        }
+
+        @Override
+        public void add(T item) {
+            double value = selector.applyAsDouble(item);
+            while (length > 0) {
+                double tail = values[slot(length - 1)];
+                if (isMax ? tail > value : tail < value)
+                    break;
+                length--;
+            }
+            if (length == values.length)
+                grow();
+            values[slot(length)] = value;
+            sequences[slot(length)] = added++;
+            length++;
+        }
+
+        @Override
+        public void remove(T item) {
+            if (length > 0 && sequences[head] == removed) {
+                head = slot(1);
+                length--;
+            }
+            removed++;
+        }
+
+        @Override
+        public Double get() {
+            return length == 0 ? null : values[head];
+        }
+    }
+
+    // The two-stack technique.  New items are pushed onto the back stack, which keeps a running aggregate.  Items are
+    // removed from the front stack, where each entry holds the aggregate of itself and everything above it.  When the
+    // front stack runs out the back stack is flipped onto it, so each item is combined a constant number of times.
+    class Combining<T, A> implements RollingAggregator<T, A> {
+        private Function<T, A> selector;
+        private BinaryOperator<A> combiner;
+        private List<A> front = new ArrayList<A>();
+        private List<A> back = new ArrayList<A>();
+        private A backAggregate = null;
+
+        Combining(Function<T, A> selector, BinaryOperator<A> combiner) {
+            this.selector = selector;
+            this.combiner = combiner;
+        }
+
+        @Override
+        public void add(T item) {
+            A value = selector.apply(item);
+            backAggregate = back.isEmpty() ? value : combiner.apply(backAggregate, value);
+            back.add(value);
+        }
+
+        @Override
+        public void remove(T item) {
+            if (front.isEmpty()) {
+                A aggregate = null;
+                for (int i = back.size() - 1; i >= 0; i--) {
+                    aggregate = i == back.size() - 1 ? back.get(i) : combiner.apply(back.get(i), aggregate);
+                    front.add(aggregate);
+                }
+                back.clear();
+                backAggregate = null;
+            }
+            if (!front.isEmpty())
+                front.remove(front.size() - 1);
+        }
+
+        @Override
+        public A get() {
+            if (front.isEmpty())
+                return backAggregate;
+            A frontAggregate = front.get(front.size() - 1);
+            return back.isEmpty() ? frontAggregate : combiner.apply(frontAggregate, backAggregate);
+        }
+    }
+}
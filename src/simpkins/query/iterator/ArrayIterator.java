@@ -1,10 +1,9 @@
 package simpkins.query.iterator;
 
 import java.lang.reflect.Array;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-public class ArrayIterator<T> implements Iterator<T> {
+public class ArrayIterator<T> implements BatchIterator<T> {
     private T[] array = null;
     private Object primitiveArray = null;
     private int index = 0;
@@ -45,9 +44,13 @@ public class ArrayIterator<T> implements Iterator<T> {
         this.primitiveArray = array;
     }
 
+    private int length() {
+        return array != null ? array.length : Array.getLength(primitiveArray);
+    }
+
     @Override
     public boolean hasNext() {
-        return index < (array != null ? array.length : Array.getLength(primitiveArray));
+        return index < length();
     }
 
     @Override
@@ -57,4 +60,37 @@ public class ArrayIterator<T> implements Iterator<T> {
         //noinspection unchecked
         return array != null ? array[index++] : (T)Array.get(primitiveArray, index++);
     }
+
+    // Object arrays are block copied.  The common primitive arrays are boxed in a typed loop to avoid a reflective
+    // Array.get() per item.
+    @Override
+    public int fill(Object[] buffer) {
+        int count = Math.min(buffer.length, length() - index);
+        if (count <= 0)
+            return 0;
+        if (array != null) {
+            System.arraycopy(array, index, buffer, 0, count);
+        }
+        else if (primitiveArray instanceof int[]) {
+            int[] ints = (int[])primitiveArray;
+            for (int i = 0; i < count; i++)
+                buffer[i] = ints[index + i];
+        }
+        else if (primitiveArray instanceof long[]) {
+            long[] longs = (long[])primitiveArray;
+            for (int i = 0; i < count; i++)
+                buffer[i] = longs[index + i];
+        }
+        else if (primitiveArray instanceof double[]) {
+            double[] doubles = (double[])primitiveArray;
+            for (int i = 0; i < count; i++)
+                buffer[i] = doubles[index + i];
+        }
+        else {
+            for (int i = 0; i < count; i++)
+                buffer[i] = Array.get(primitiveArray, index + i);
+        }
+        index += count;
+        return count;
+    }
 }
@@ -0,0 +1,52 @@
+package simpkins.query.iterator;
+
+import java.util.Iterator;
+
+/**
+ * An optional extension of Iterator that can hand out its items a block at a time.  Consumers that drain an iterator
+ * through fill() pay the hasNext()/next() dispatch and any isNextReady bookkeeping once per block rather than once per
+ * item.  Iterators that don't implement this interface can still be drained in blocks through the of() adapter.
+ */
+public interface BatchIterator<T> extends Iterator<T> {
+    // Large enough to amortize the per-block dispatch and small enough for the block to stay in cache.
+    int BATCH_SIZE = 512;
+
+    /**
+     * Copies up to buffer.length of the next items into the start of the buffer and returns the number copied.  Fewer
+     * items than buffer.length may be returned even when more remain, but 0 is only returned once the iterator is
+     * exhausted.  The buffer must have a length of at least one.  An iterator with state that is observed per item,
+     * such as one that reuses the object it hands out, should return one item at a time so that each item is consumed
+     * before that state moves on.
+     */
+    int fill(Object[] buffer);
+
+    /**
+     * Returns the provided iterator if it is already a BatchIterator, otherwise wraps it in an adapter that fills each
+     * block one hasNext()/next() pair at a time.  The adapter holds no state of its own, so the wrapped iterator may
+     * still be used directly in between calls to fill().
+     */
+    @SuppressWarnings("unchecked")
+    static <T> BatchIterator<T> of(Iterator<T> iterator) {
+        if (iterator instanceof BatchIterator)
+            return (BatchIterator<T>)iterator;
+        return new BatchIterator<T>() {
+            @Override
+            public int fill(Object[] buffer) {
+                int count = 0;
+                while (count < buffer.length && iterator.hasNext())
+                    buffer[count++] = iterator.next();
+                return count;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        };
+    }
+}
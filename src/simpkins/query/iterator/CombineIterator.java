@@ -2,7 +2,7 @@ package simpkins.query.iterator;
 
 import java.util.Iterator;
 
-public class CombineIterator<T> implements Iterator<T> {
+public class CombineIterator<T> implements BatchIterator<T> {
     private Iterator<? extends T> source;
     private Iterator<? extends T> additions;
     private Integer insertIndex = null;
@@ -33,5 +33,18 @@ public class CombineIterator<T> implements Iterator<T> {
         index++;
         return source.next();
     }
-}
 
+    // an append fills whole blocks from each side in turn.  An insert needs the index check on every item, so it is
+    // filled one item at a time.
+    @Override
+    public int fill(Object[] buffer) {
+        if (insertIndex == null) {
+            int count = BatchIterator.of(source).fill(buffer);
+            return count > 0 ? count : BatchIterator.of(additions).fill(buffer);
+        }
+        int count = 0;
+        while (count < buffer.length && hasNext())
+            buffer[count++] = next();
+        return count;
+    }
+}
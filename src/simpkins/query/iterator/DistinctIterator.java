@@ -9,15 +9,20 @@ public class DistinctIterator<T, S> implements Iterator<T> {
     private Function<T, S> selector;
     private BiPredicate<T, T> matcher;
     private List<T> iteratedList = null;
-    private Set<S> iteratedSet = null;
+    private KeyTable iteratedKeys = null;
     private boolean isNextReady = false;
     private T next = null;
     private S nextSelected = null;
 
     public DistinctIterator(Iterator<T> source, Function<T, S> selector) {
+        this(source, selector, null);
+    }
+
+    // The expectedSize presizes the set of iterated keys and may be null if there's no estimate.
+    public DistinctIterator(Iterator<T> source, Function<T, S> selector, Integer expectedSize) {
         this.source = source;
         this.selector = selector;
-        this.iteratedSet = new HashSet<>();
+        this.iteratedKeys = expectedSize != null ? new KeyTable(expectedSize) : new KeyTable();
     }
 
     public DistinctIterator(Iterator<T> source, BiPredicate<T, T> matcher) {
@@ -37,7 +42,7 @@ public class DistinctIterator<T, S> implements Iterator<T> {
             next = source.next();
             if (selector != null) {
                 nextSelected = selector.apply(next);
-                if (iteratedSet.contains(nextSelected))
+                if (iteratedKeys.contains(nextSelected))
                     continue;
             }
             else {
@@ -57,7 +62,7 @@ public class DistinctIterator<T, S> implements Iterator<T> {
             throw new NoSuchElementException();
         isNextReady = false;
         if (selector != null)
-            iteratedSet.add(nextSelected);
+            iteratedKeys.add(nextSelected);
         else
             iteratedList.add(next);
         return next;
@@ -0,0 +1,103 @@
+package simpkins.query.iterator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+public class ForkIterator<T> implements Iterator<T> {
+    private Buffer<T> buffer;
+    private int fork;
+
+    public ForkIterator(Buffer<T> buffer, int fork) {
+        this.buffer = buffer;
+        this.fork = fork;
+        buffer.open(fork);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return buffer.hasNext(fork);
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return buffer.next(fork);
+    }
+
+    // Shared by a set of forks.  The source is iterated once, and each item is held in a ring buffer only until every
+    // fork has moved past it.
+    public static class Buffer<T> {
+        private Supplier<Iterator<T>> sourceSupplier;
+        private Iterator<T> source = null;
+        private int bufferLimit;
+        private long[] positions;
+        private boolean[] isOpened;
+        private Object[] ring = new Object[16];
+        private int head = 0;
+        private int size = 0;
+        // the position of the item at the head of the ring.
+        private long base = 0;
+
+        public Buffer(Supplier<Iterator<T>> sourceSupplier, int forks, int bufferLimit) {
+            this.sourceSupplier = sourceSupplier;
+            this.bufferLimit = bufferLimit;
+            this.positions = new long[forks];
+            this.isOpened = new boolean[forks];
+        }
+
+        private void open(int fork) {
+            if (isOpened[fork])
+                throw new RuntimeException("Each fork can only be iterated once.");
+            isOpened[fork] = true;
+            if (source == null)
+                source = sourceSupplier.get();
+        }
+
+        private boolean hasNext(int fork) {
+            if (positions[fork] < base + size)
+                return true;
+            if (!source.hasNext()) {
+                // a finished fork no longer holds back the buffer.
+                positions[fork] = Long.MAX_VALUE;
+                trim();
+                return false;
+            }
+            if (size >= bufferLimit)
+                throw new RuntimeException("Fork buffer limit of " + bufferLimit + " exceeded.  The forks must be iterated more evenly.");
+            if (size == ring.length) {
+                Object[] grown = new Object[ring.length * 2];
+                for (int i = 0; i < size; i++)
+                    grown[i] = ring[(head + i) % ring.length];
+                ring = grown;
+                head = 0;
+            }
+            ring[(head + size++) % ring.length] = source.next();
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T next(int fork) {
+            T next = (T)ring[(int)((head + positions[fork] - base) % ring.length)];
+            positions[fork]++;
+            trim();
+            return next;
+        }
+
+        // drops the items every fork has moved past.
+        private void trim() {
+            long slowest = Long.MAX_VALUE;
+            for (long position : positions)
+                slowest = Math.min(slowest, position);
+            while (size > 0 && base < slowest) {
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                base++;
+            }
+            if (size == 0 && slowest != Long.MAX_VALUE)
+                base = slowest;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package simpkins.query.iterator;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Runs each source item through a handle fusing a run of where() and select() stages, as built by Query.compile().
+ * The handle returns the item's projection, or the skip object if a stage filtered the item out.
+ */
+public class FusedIterator<T> implements BatchIterator<T> {
+    private Iterator<?> source;
+    private MethodHandle stages;
+    private Object skip;
+    private boolean isNextReady = false;
+    private Object next = null;
+    private BatchIterator<?> batchSource = null;
+
+    public FusedIterator(Iterator<?> source, MethodHandle stages, Object skip) {
+        this.source = source;
+        this.stages = stages;
+        this.skip = skip;
+    }
+
+    private BatchIterator<?> getBatchSource() {
+        if (batchSource == null)
+            batchSource = BatchIterator.of(source);
+        return batchSource;
+    }
+
+    private Object apply(Object item) {
+        try {
+            return (Object)stages.invokeExact(item);
+        }
+        catch (RuntimeException | Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (isNextReady)
+            return true;
+        while (source.hasNext()) {
+            next = apply(source.next());
+            if (next != skip)
+                return isNextReady = true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!isNextReady && !hasNext())
+            throw new NoSuchElementException();
+        isNextReady = false;
+        return (T)next;
+    }
+
+    // the projections of the items that pass every stage are compacted to the front of the buffer.  A source block
+    // with none is skipped so that 0 is only returned once the source is exhausted.
+    @Override
+    public int fill(Object[] buffer) {
+        if (isNextReady) {
+            isNextReady = false;
+            buffer[0] = next;
+            return 1;
+        }
+        int count;
+        while ((count = getBatchSource().fill(buffer)) > 0) {
+            int passed = 0;
+            for (int i = 0; i < count; i++) {
+                Object projection = apply(buffer[i]);
+                if (projection != skip)
+                    buffer[passed++] = projection;
+            }
+            if (passed > 0)
+                return passed;
+        }
+        return 0;
+    }
+}
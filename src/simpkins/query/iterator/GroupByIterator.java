@@ -10,27 +10,43 @@ public class GroupByIterator<T, K, V> implements Iterator<QueryGrouping<K, V>> {
     private Function<T, K> keySelector;
     private Function<T, V> valueSelector;
     private int index = 0;
+    private Integer expectedSize;
     private List<QueryGrouping<K, T>> sourceByKeys = null;
 
     public GroupByIterator(Iterator<T> source, Function<T, K> keySelector, Function<T, V> valueSelector) {
+        this(source, keySelector, valueSelector, null);
+    }
+
+    // The expectedSize is the estimated number of source items, used to presize the map of keys.  It may be null if
+    // there's no estimate.
+    public GroupByIterator(Iterator<T> source, Function<T, K> keySelector, Function<T, V> valueSelector, Integer expectedSize) {
         this.source = source;
         this.keySelector = keySelector;
         this.valueSelector = valueSelector;
+        this.expectedSize = expectedSize;
     }
 
     private List<QueryGrouping<K, T>> getSourceByKeys() {
         if (sourceByKeys == null) {
-            Map<K, List<T>> keysMap = new LinkedHashMap<>();
+            // the groups are kept in the order their keys were first seen, which is the order of their ordinals.
+            KeyTable keys = expectedSize != null ? new KeyTable(expectedSize) : new KeyTable();
+            List<K> groupKeys = new ArrayList<>();
+            List<List<T>> groups = new ArrayList<>();
             while (source.hasNext()) {
                 T next = source.next();
                 K key = keySelector.apply(next);
-                if (!keysMap.containsKey(key))
-                    keysMap.put(key, new ArrayList<>());
-                keysMap.get(key).add(next);
+                int ordinal = keys.add(key);
+                if (ordinal >= 0) {
+                    groupKeys.add(key);
+                    groups.add(new ArrayList<>());
+                }
+                else
+                    ordinal = -1 - ordinal;
+                groups.get(ordinal).add(next);
             }
-            sourceByKeys = new ArrayList<>(keysMap.size());
-            for (K key : keysMap.keySet())
-                sourceByKeys.add(new QueryGrouping<>(key, keysMap.get(key)));
+            sourceByKeys = new ArrayList<>(groups.size());
+            for (int i = 0; i < groups.size(); i++)
+                sourceByKeys.add(new QueryGrouping<>(groupKeys.get(i), groups.get(i)));
         }
         return sourceByKeys;
     }
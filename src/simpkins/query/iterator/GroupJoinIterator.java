@@ -19,6 +19,10 @@ public class GroupJoinIterator<L, R> implements Iterator<Tuple<L, QueryList<R>>>
     private Map<Integer, R> rightByIndex = null;
     private Set<Integer> rightIndexesIncluded = null;
     private boolean isRightDone = false;
+    // set when the matches of each left item are looked up rather than scanned for.
+    private Function<L, Iterable<R>> rightLookup = null;
+    private Iterable<R> rightItems = null;
+    private Set<R> rightIncluded = null;
 
     public <K> GroupJoinIterator(Iterator<L> leftSource, JoinType joinType, Iterator<R> rightSource, Function<L, K> leftSelector, Function<R, K> rightSelector, Integer rightSourceSize) {
         this(leftSource, joinType, rightSource, (l, r) -> Objects.equals(leftSelector.apply(l), rightSelector.apply(r)), rightSourceSize);
@@ -32,6 +36,15 @@ public class GroupJoinIterator<L, R> implements Iterator<Tuple<L, QueryList<R>>>
         this.rightSourceSize = rightSourceSize;
     }
 
+    // Looks up the matches of each left item through the rightLookup.  The rightItems are only iterated to find the
+    // unmatched right items of a right or outer join, which are tracked by identity.
+    public GroupJoinIterator(Iterator<L> leftSource, JoinType joinType, Function<L, Iterable<R>> rightLookup, Iterable<R> rightItems) {
+        this.leftSource = leftSource;
+        this.joinType = joinType;
+        this.rightLookup = rightLookup;
+        this.rightItems = rightItems;
+    }
+
     private Map<Integer, R> getRightByIndex() {
         if (rightByIndex == null) {
             rightByIndex = rightSourceSize != null ? new LinkedHashMap<>(rightSourceSize) : new LinkedHashMap<>();
@@ -51,6 +64,8 @@ public class GroupJoinIterator<L, R> implements Iterator<Tuple<L, QueryList<R>>>
     public boolean hasNext() {
         if (isNextReady)
             return true;
+        if (rightLookup != null)
+            return lookupHasNext();
 
         while (leftSource.hasNext()) {
             L left = leftSource.next();
@@ -86,6 +101,41 @@ public class GroupJoinIterator<L, R> implements Iterator<Tuple<L, QueryList<R>>>
         return false;
     }
 
+    private boolean lookupHasNext() {
+        while (leftSource.hasNext()) {
+            L left = leftSource.next();
+
+            QueryList<R> rightMatches = new QueryList<>();
+            for (R right : rightLookup.apply(left)) {
+                rightMatches.add(right);
+                if (joinType.isRight()) {
+                    if (rightIncluded == null)
+                        rightIncluded = Collections.newSetFromMap(new IdentityHashMap<>());
+                    rightIncluded.add(right);
+                }
+            }
+
+            if (!rightMatches.isEmpty() || joinType.isLeft()) {
+                next = Tuple.create(left, rightMatches);
+                return isNextReady = true;
+            }
+        }
+
+        if (joinType.isRight() && !isRightDone) {
+            QueryList<R> rights = new QueryList<>();
+            for (R right : rightItems)
+                if (rightIncluded == null || !rightIncluded.contains(right))
+                    rights.add(right);
+            isRightDone = true;
+            if (!rights.isEmpty()) {
+                next = Tuple.create(null, rights);
+                return isNextReady = true;
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public Tuple<L, QueryList<R>> next() {
         if (!isNextReady && !hasNext())
@@ -0,0 +1,41 @@
+package simpkins.query.iterator;
+
+import simpkins.query.JoinType;
+
+import java.util.*;
+import java.util.function.Function;
+
+// A hash join that builds its table from the left items and streams the right items through it once.
+public class HashJoinIterator<L, R, K> extends MatchedJoinIterator<L, R> {
+    private Iterator<R> rightSource;
+    private Function<L, K> leftSelector;
+    private Function<R, K> rightSelector;
+
+    public HashJoinIterator(Iterator<L> leftSource, JoinType joinType, Iterator<R> rightSource, Function<L, K> leftSelector, Function<R, K> rightSelector) {
+        super(leftSource, joinType);
+        this.rightSource = rightSource;
+        this.leftSelector = leftSelector;
+        this.rightSelector = rightSelector;
+    }
+
+    @Override
+    protected void match(List<L> lefts, List<List<R>> matches, List<R> unmatchedRights) {
+        Map<K, List<Integer>> leftIndexesByKey = new HashMap<>();
+        for (int i = 0; i < lefts.size(); i++)
+            leftIndexesByKey.computeIfAbsent(leftSelector.apply(lefts.get(i)), k -> new ArrayList<>(1)).add(i);
+        while (rightSource.hasNext()) {
+            R right = rightSource.next();
+            List<Integer> leftIndexes = leftIndexesByKey.get(rightSelector.apply(right));
+            if (leftIndexes == null) {
+                if (joinType.isRight())
+                    unmatchedRights.add(right);
+                continue;
+            }
+            for (int i : leftIndexes) {
+                if (matches.get(i) == null)
+                    matches.set(i, new ArrayList<>(1));
+                matches.get(i).add(right);
+            }
+        }
+    }
+}
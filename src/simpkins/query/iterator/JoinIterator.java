@@ -21,6 +21,11 @@ public class JoinIterator<L, R> implements Iterator<Tuple<L, R>> {
     private int rightIndex = 0;
     private Map<Integer, R> rightByIndex = null;
     private Set<Integer> rightIndexesIncluded = null;
+    // set when the matches of each left item are looked up rather than scanned for.
+    private Function<L, Iterable<R>> rightLookup = null;
+    private Iterable<R> rightItems = null;
+    private Iterator<R> rightMatches = null;
+    private Set<R> rightIncluded = null;
 
     public <K> JoinIterator(Iterator<L> leftSource, JoinType joinType, Iterator<R> rightSource, Function<L, K> leftSelector, Function<R, K> rightSelector, Integer rightSourceSize) {
         this(leftSource, joinType, rightSource, (l, r) -> Objects.equals(leftSelector.apply(l), rightSelector.apply(r)), rightSourceSize);
@@ -34,6 +39,15 @@ public class JoinIterator<L, R> implements Iterator<Tuple<L, R>> {
         this.rightSourceSize = rightSourceSize;
     }
 
+    // Looks up the matches of each left item through the rightLookup.  The rightItems are only iterated to find the
+    // unmatched right items of a right or outer join, which are tracked by identity.
+    public JoinIterator(Iterator<L> leftSource, JoinType joinType, Function<L, Iterable<R>> rightLookup, Iterable<R> rightItems) {
+        this.leftSource = leftSource;
+        this.joinType = joinType;
+        this.rightLookup = rightLookup;
+        this.rightItems = rightItems;
+    }
+
     private Map<Integer, R> getRightByIndex() {
         if (rightByIndex == null) {
             rightByIndex = rightSourceSize != null ? new LinkedHashMap<>(rightSourceSize) : new LinkedHashMap<>();
@@ -61,6 +75,8 @@ public class JoinIterator<L, R> implements Iterator<Tuple<L, R>> {
     public boolean hasNext() {
         if (isNextReady)
             return true;
+        if (rightLookup != null)
+            return lookupHasNext();
 
         while (isLeftReady || leftSource.hasNext()) {
             if (!isLeftReady) {
@@ -99,6 +115,49 @@ public class JoinIterator<L, R> implements Iterator<Tuple<L, R>> {
         return false;
     }
 
+    private boolean lookupHasNext() {
+        while (isLeftReady || leftSource.hasNext()) {
+            if (!isLeftReady) {
+                left = leftSource.next();
+                isLeftIncluded = false;
+                isLeftReady = true;
+                rightMatches = rightLookup.apply(left).iterator();
+            }
+
+            if (rightMatches.hasNext()) {
+                R right = rightMatches.next();
+                isLeftIncluded = true;
+                if (joinType.isRight()) {
+                    if (rightIncluded == null)
+                        rightIncluded = Collections.newSetFromMap(new IdentityHashMap<>());
+                    rightIncluded.add(right);
+                }
+                next = Tuple.create(left, right);
+                return isNextReady = true;
+            }
+
+            isLeftReady = false;
+            if (joinType.isLeft() && !isLeftIncluded) {
+                next = Tuple.create(left, null);
+                return isNextReady = true;
+            }
+        }
+
+        if (joinType.isRight()) {
+            if (rightSource == null)
+                rightSource = rightItems.iterator();
+            while (rightSource.hasNext()) {
+                R right = rightSource.next();
+                if (rightIncluded == null || !rightIncluded.contains(right)) {
+                    next = Tuple.create(null, right);
+                    return isNextReady = true;
+                }
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public Tuple<L, R> next() {
         if (!isNextReady && !hasNext())
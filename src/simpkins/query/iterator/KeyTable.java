@@ -0,0 +1,206 @@
+package simpkins.query.iterator;
+
+import java.util.Objects;
+
+// An open addressing hash table of keys, used by the operators that track distinct keys in place of a HashSet or
+// LinkedHashMap.  Keys are held in flat arrays probed linearly rather than in an entry object each, and each key is
+// numbered by the order it was first added in so that callers can keep anything they associate with it in a list.
+// While every key is an Integer, or every key a Long, the keys are stored unboxed.  The first key of another type
+// switches the table to storing the keys as objects, which compares them by equals() the same as a HashSet would.
+class KeyTable {
+    private static final int INT_KEYS = 0;
+    private static final int LONG_KEYS = 1;
+    private static final int OBJECT_KEYS = 2;
+    // stored in place of a null key, so that an empty slot is told apart by its ordinal alone.
+    private static final Object NULL_KEY = new Object();
+    private static final int MIN_CAPACITY = 16;
+    // the most keys a table is presized for.  An operator's expected size only bounds its number of distinct keys, and
+    // past this growing as needed costs less than allocating for keys that may never come.
+    private static final int MAX_EXPECTED_SIZE = 1 << 16;
+
+    // unknown until the first key is added, which is when the arrays are allocated.
+    private int keyType = -1;
+    private int initialCapacity;
+    private int[] intKeys;
+    private long[] longKeys;
+    private Object[] objectKeys;
+    // the hash of each object key, which spares calling equals() on keys that can't match.
+    private int[] hashes;
+    // one more than the ordinal of the key in each slot, or 0 if the slot is empty.
+    private int[] ordinals;
+    private int mask;
+    private int size = 0;
+    private int threshold;
+
+    KeyTable() {
+        this(0);
+    }
+
+    // The expectedSize is the number of distinct keys to make room for before the table first grows.
+    KeyTable(int expectedSize) {
+        initialCapacity = capacityFor(Math.min(expectedSize, MAX_EXPECTED_SIZE));
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(Object key) {
+        return indexOf(key) != -1;
+    }
+
+    // Returns the ordinal of the provided key, or -1 if it hasn't been added.
+    int indexOf(Object key) {
+        if (size == 0)
+            return -1;
+        if (keyType == INT_KEYS && key instanceof Integer) {
+            int k = (Integer)key;
+            for (int slot = mix(k) & mask; ordinals[slot] != 0; slot = (slot + 1) & mask)
+                if (intKeys[slot] == k)
+                    return ordinals[slot] - 1;
+            return -1;
+        }
+        if (keyType == LONG_KEYS && key instanceof Long) {
+            long k = (Long)key;
+            for (int slot = mix(Long.hashCode(k)) & mask; ordinals[slot] != 0; slot = (slot + 1) & mask)
+                if (longKeys[slot] == k)
+                    return ordinals[slot] - 1;
+            return -1;
+        }
+        if (keyType != OBJECT_KEYS)
+            return -1;
+        Object k = key != null ? key : NULL_KEY;
+        int hash = k.hashCode();
+        for (int slot = mix(hash) & mask; ordinals[slot] != 0; slot = (slot + 1) & mask)
+            if (hashes[slot] == hash && Objects.equals(objectKeys[slot], k))
+                return ordinals[slot] - 1;
+        return -1;
+    }
+
+    // Adds the provided key if it hasn't been added and returns its ordinal.  Returns -1 - the ordinal if the key was
+    // already there, so a caller can tell a new key from an old one without a second lookup.
+    int add(Object key) {
+        if (keyType == -1) {
+            keyType = key instanceof Integer ? INT_KEYS : key instanceof Long ? LONG_KEYS : OBJECT_KEYS;
+            allocate(initialCapacity);
+        }
+        else if (keyType == INT_KEYS && !(key instanceof Integer) || keyType == LONG_KEYS && !(key instanceof Long))
+            boxKeys();
+        if (keyType == INT_KEYS) {
+            int k = (Integer)key;
+            int slot = mix(k) & mask;
+            for (; ordinals[slot] != 0; slot = (slot + 1) & mask)
+                if (intKeys[slot] == k)
+                    return -ordinals[slot];
+            intKeys[slot] = k;
+            return occupy(slot);
+        }
+        if (keyType == LONG_KEYS) {
+            long k = (Long)key;
+            int slot = mix(Long.hashCode(k)) & mask;
+            for (; ordinals[slot] != 0; slot = (slot + 1) & mask)
+                if (longKeys[slot] == k)
+                    return -ordinals[slot];
+            longKeys[slot] = k;
+            return occupy(slot);
+        }
+        Object k = key != null ? key : NULL_KEY;
+        int hash = k.hashCode();
+        int slot = mix(hash) & mask;
+        for (; ordinals[slot] != 0; slot = (slot + 1) & mask)
+            if (hashes[slot] == hash && Objects.equals(objectKeys[slot], k))
+                return -ordinals[slot];
+        objectKeys[slot] = k;
+        hashes[slot] = hash;
+        return occupy(slot);
+    }
+
+    private int occupy(int slot) {
+        int ordinal = size++;
+        ordinals[slot] = ordinal + 1;
+        if (size > threshold)
+            rehash(ordinals.length << 1, keyType);
+        return ordinal;
+    }
+
+    // Switches to storing the keys as objects, for when a key of another type turns up.
+    private void boxKeys() {
+        rehash(ordinals.length, OBJECT_KEYS);
+    }
+
+    // Reinserts every key into arrays of the provided capacity, keeping their ordinals.
+    private void rehash(int capacity, int newKeyType) {
+        int oldKeyType = keyType;
+        int[] oldIntKeys = intKeys;
+        long[] oldLongKeys = longKeys;
+        Object[] oldObjectKeys = objectKeys;
+        int[] oldHashes = hashes;
+        int[] oldOrdinals = ordinals;
+        keyType = newKeyType;
+        allocate(capacity);
+        for (int i = 0; i < oldOrdinals.length; i++) {
+            if (oldOrdinals[i] == 0)
+                continue;
+            int slot;
+            if (keyType == INT_KEYS) {
+                slot = mix(oldIntKeys[i]) & mask;
+                while (ordinals[slot] != 0)
+                    slot = (slot + 1) & mask;
+                intKeys[slot] = oldIntKeys[i];
+            }
+            else if (keyType == LONG_KEYS) {
+                slot = mix(Long.hashCode(oldLongKeys[i])) & mask;
+                while (ordinals[slot] != 0)
+                    slot = (slot + 1) & mask;
+                longKeys[slot] = oldLongKeys[i];
+            }
+            else {
+                Object key = oldKeyType == INT_KEYS ? (Object)oldIntKeys[i]
+                        : oldKeyType == LONG_KEYS ? (Object)oldLongKeys[i] : oldObjectKeys[i];
+                int hash = oldKeyType == OBJECT_KEYS ? oldHashes[i] : key.hashCode();
+                slot = mix(hash) & mask;
+                while (ordinals[slot] != 0)
+                    slot = (slot + 1) & mask;
+                objectKeys[slot] = key;
+                hashes[slot] = hash;
+            }
+            ordinals[slot] = oldOrdinals[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        intKeys = null;
+        longKeys = null;
+        objectKeys = null;
+        hashes = null;
+        if (keyType == INT_KEYS)
+            intKeys = new int[capacity];
+        else if (keyType == LONG_KEYS)
+            longKeys = new long[capacity];
+        else {
+            objectKeys = new Object[capacity];
+            hashes = new int[capacity];
+        }
+        ordinals = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 4 * 3;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 4 * 3 < expectedSize && capacity < 1 << 30)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    // Spreads the bits of a hash so that keys in a run, such as consecutive ints, don't fill a run of slots.
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "KeyTable{size=" + size + ", capacity=" + (ordinals != null ? ordinals.length : initialCapacity) + "}";
+    }
+}
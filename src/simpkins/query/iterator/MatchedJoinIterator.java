@@ -0,0 +1,77 @@
+package simpkins.query.iterator;
+
+import simpkins.query.JoinType;
+import simpkins.query.Tuple;
+
+import java.util.*;
+
+// The base of joins that find all of their matches up front rather than streaming the left items.  The matches are
+// then given out in the same order as the nested loop of JoinIterator.
+abstract class MatchedJoinIterator<L, R> implements Iterator<Tuple<L, R>> {
+    protected Iterator<L> leftSource;
+    protected JoinType joinType;
+    private List<L> lefts = null;
+    private List<List<R>> matches = null;
+    private List<R> unmatchedRights = null;
+    private int leftIndex = 0;
+    private int matchIndex = 0;
+    private int unmatchedIndex = 0;
+    private boolean isNextReady = false;
+    private Tuple<L, R> next = null;
+
+    protected MatchedJoinIterator(Iterator<L> leftSource, JoinType joinType) {
+        this.leftSource = leftSource;
+        this.joinType = joinType;
+    }
+
+    // Sets the matches of each left item, in right order, at its position in matches, leaving null where there are
+    // none.  For a right or outer join, also adds the right items that matched nothing to unmatchedRights in right
+    // order.
+    protected abstract void match(List<L> lefts, List<List<R>> matches, List<R> unmatchedRights);
+
+    private void matchAll() {
+        lefts = new ArrayList<>();
+        while (leftSource.hasNext())
+            lefts.add(leftSource.next());
+        matches = new ArrayList<>(Collections.nCopies(lefts.size(), (List<R>)null));
+        unmatchedRights = new ArrayList<>();
+        match(lefts, matches, unmatchedRights);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (isNextReady)
+            return true;
+        if (lefts == null)
+            matchAll();
+
+        while (leftIndex < lefts.size()) {
+            List<R> leftMatches = matches.get(leftIndex);
+            if (leftMatches != null && matchIndex < leftMatches.size()) {
+                next = Tuple.create(lefts.get(leftIndex), leftMatches.get(matchIndex++));
+                return isNextReady = true;
+            }
+            L left = lefts.get(leftIndex++);
+            matchIndex = 0;
+            if (leftMatches == null && joinType.isLeft()) {
+                next = Tuple.create(left, null);
+                return isNextReady = true;
+            }
+        }
+
+        if (unmatchedIndex < unmatchedRights.size()) {
+            next = Tuple.create(null, unmatchedRights.get(unmatchedIndex++));
+            return isNextReady = true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public Tuple<L, R> next() {
+        if (!isNextReady && !hasNext())
+            throw new NoSuchElementException();
+        isNextReady = false;
+        return next;
+    }
+}
@@ -0,0 +1,80 @@
+package simpkins.query.iterator;
+
+import simpkins.query.JoinType;
+
+import java.util.*;
+import java.util.function.Function;
+
+// A sort-merge join.  Both sides are stably sorted by key, so each run of equal right keys stays in right order and
+// is shared as the matches of every left item in the matching run of left keys.
+public class MergeJoinIterator<L, R, K extends Comparable<K>> extends MatchedJoinIterator<L, R> {
+    private Iterator<R> rightSource;
+    private Function<L, K> leftSelector;
+    private Function<R, K> rightSelector;
+
+    public MergeJoinIterator(Iterator<L> leftSource, JoinType joinType, Iterator<R> rightSource, Function<L, K> leftSelector, Function<R, K> rightSelector) {
+        super(leftSource, joinType);
+        this.rightSource = rightSource;
+        this.leftSelector = leftSelector;
+        this.rightSelector = rightSelector;
+    }
+
+    private static <K extends Comparable<K>> int compare(K key1, K key2) {
+        if (key1 == null || key2 == null)
+            return key1 == null ? (key2 == null ? 0 : -1) : 1;
+        return key1.compareTo(key2);
+    }
+
+    // Returns the positions of the keys sorted by key, with equal keys left in their original order.
+    private static <K extends Comparable<K>> Integer[] sortedPositions(List<K> keys) {
+        Integer[] positions = new Integer[keys.size()];
+        for (int i = 0; i < positions.length; i++)
+            positions[i] = i;
+        Arrays.sort(positions, (x, y) -> compare(keys.get(x), keys.get(y)));
+        return positions;
+    }
+
+    @Override
+    protected void match(List<L> lefts, List<List<R>> matches, List<R> unmatchedRights) {
+        List<R> rights = new ArrayList<>();
+        while (rightSource.hasNext())
+            rights.add(rightSource.next());
+        List<K> leftKeys = new ArrayList<>(lefts.size());
+        for (L left : lefts)
+            leftKeys.add(leftSelector.apply(left));
+        List<K> rightKeys = new ArrayList<>(rights.size());
+        for (R right : rights)
+            rightKeys.add(rightSelector.apply(right));
+        Integer[] leftOrder = sortedPositions(leftKeys);
+        Integer[] rightOrder = sortedPositions(rightKeys);
+        boolean[] isRightMatched = joinType.isRight() ? new boolean[rights.size()] : null;
+
+        int l = 0;
+        int r = 0;
+        while (l < leftOrder.length && r < rightOrder.length) {
+            int comparison = compare(leftKeys.get(leftOrder[l]), rightKeys.get(rightOrder[r]));
+            if (comparison < 0) {
+                l++;
+            }
+            else if (comparison > 0) {
+                r++;
+            }
+            else {
+                K key = rightKeys.get(rightOrder[r]);
+                List<R> run = new ArrayList<>();
+                for (; r < rightOrder.length && compare(rightKeys.get(rightOrder[r]), key) == 0; r++) {
+                    run.add(rights.get(rightOrder[r]));
+                    if (isRightMatched != null)
+                        isRightMatched[rightOrder[r]] = true;
+                }
+                for (; l < leftOrder.length && compare(leftKeys.get(leftOrder[l]), key) == 0; l++)
+                    matches.set(leftOrder[l], run);
+            }
+        }
+
+        if (isRightMatched != null)
+            for (int i = 0; i < rights.size(); i++)
+                if (!isRightMatched[i])
+                    unmatchedRights.add(rights.get(i));
+    }
+}
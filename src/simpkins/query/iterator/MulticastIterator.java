@@ -0,0 +1,93 @@
+package simpkins.query.iterator;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// The consuming end of one multicast branch.  The producer hands over blocks of items through a bounded queue, so a
+// slow branch holds back the producer rather than letting the buffer grow.
+public class MulticastIterator<T> implements BatchIterator<T> {
+    private static final Object[] END = new Object[0];
+
+    private BlockingQueue<Object[]> queue;
+    private volatile boolean isClosed = false;
+    private volatile Throwable sourceError = null;
+    private boolean isOpened = false;
+    private Object[] block = null;
+    private int position = 0;
+
+    public MulticastIterator(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public MulticastIterator<T> open() {
+        if (isOpened)
+            throw new RuntimeException("Each multicast branch can only be iterated once.");
+        isOpened = true;
+        return this;
+    }
+
+    // producer side: returns false once the branch has stopped consuming so the producer can stop feeding it.
+    public boolean offer(Object[] items) {
+        try {
+            while (!isClosed)
+                if (queue.offer(items, 10, TimeUnit.MILLISECONDS))
+                    return true;
+            return false;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    // producer side: marks the end of the source, or its failure if an error is provided.
+    public void end(Throwable error) {
+        sourceError = error;
+        offer(END);
+    }
+
+    // consumer side: called once the branch is done, whether or not it read everything.
+    public void close() {
+        isClosed = true;
+        queue.clear();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (block != null && position < block.length)
+            return true;
+        if (block == END)
+            return false;
+        try {
+            block = queue.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        position = 0;
+        if (block == END && sourceError != null)
+            throw new RuntimeException("The multicast source failed.", sourceError);
+        return block != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return (T)block[position++];
+    }
+
+    @Override
+    public int fill(Object[] buffer) {
+        if (!hasNext())
+            return 0;
+        int count = Math.min(buffer.length, block.length - position);
+        System.arraycopy(block, position, buffer, 0, count);
+        position += count;
+        return count;
+    }
+}
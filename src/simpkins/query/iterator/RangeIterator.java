@@ -1,9 +1,8 @@
 package simpkins.query.iterator;
 
-import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-public class RangeIterator implements Iterator<Integer> {
+public class RangeIterator implements BatchIterator<Integer> {
     private int start;
     private int end;
     private boolean isDescending;
@@ -26,4 +25,14 @@ public class RangeIterator implements Iterator<Integer> {
             throw new NoSuchElementException();
         return start + ((isDescending ? index-- : index++));
     }
+
+    @Override
+    public int fill(Object[] buffer) {
+        // computed as a long since a full int range has more items than an int can count.
+        long remaining = isDescending ? (long)start + index - end + 1 : (long)end - (start + index) + 1;
+        int count = (int)Math.max(Math.min(buffer.length, remaining), 0);
+        for (int i = 0; i < count; i++)
+            buffer[i] = start + (isDescending ? index-- : index++);
+        return count;
+    }
 }
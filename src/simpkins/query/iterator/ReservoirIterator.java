@@ -0,0 +1,106 @@
+package simpkins.query.iterator;
+
+import java.util.*;
+import java.util.function.Function;
+
+public class ReservoirIterator<T, K> implements Iterator<T> {
+    private Iterator<T> source;
+    private Function<T, K> keySelector;
+    private int sampleSize;
+    private Random random;
+    private Iterator<T> sample = null;
+
+    // a null keySelector samples the whole source as a single stratum.
+    public ReservoirIterator(Iterator<T> source, Function<T, K> keySelector, int sampleSize, Random random) {
+        this.source = source;
+        this.keySelector = keySelector;
+        this.sampleSize = sampleSize;
+        this.random = random;
+    }
+
+    private Iterator<T> getSample() {
+        if (sample == null) {
+            if (keySelector == null) {
+                Reservoir<T> reservoir = new Reservoir<>(sampleSize, random);
+                while (source.hasNext())
+                    reservoir.offer(source.next());
+                sample = reservoir.getItems().iterator();
+            }
+            else {
+                Map<K, Reservoir<T>> reservoirs = new LinkedHashMap<>();
+                while (source.hasNext()) {
+                    T next = source.next();
+                    K key = keySelector.apply(next);
+                    Reservoir<T> reservoir = reservoirs.get(key);
+                    if (reservoir == null)
+                        reservoirs.put(key, reservoir = new Reservoir<>(sampleSize, random));
+                    reservoir.offer(next);
+                }
+                List<T> items = new ArrayList<>();
+                for (Reservoir<T> reservoir : reservoirs.values())
+                    items.addAll(reservoir.getItems());
+                sample = items.iterator();
+            }
+        }
+        return sample;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return getSample().hasNext();
+    }
+
+    @Override
+    public T next() {
+        return getSample().next();
+    }
+
+    // Algorithm L.  Once the reservoir is full, the number of items to pass over before the next replacement is drawn
+    // from its geometric distribution, so only O(k(1 + log(n/k))) random numbers are drawn over n items.
+    private static class Reservoir<T> {
+        private int size;
+        private Random random;
+        private List<T> items;
+        private double weight;
+        private long skip = 0;
+
+        private Reservoir(int size, Random random) {
+            this.size = size;
+            this.random = random;
+            this.items = new ArrayList<>(Math.min(size, 1024));
+        }
+
+        // a uniform value in (0, 1] so that its log is always finite.
+        private double uniform() {
+            return 1 - random.nextDouble();
+        }
+
+        private void nextSkip() {
+            weight *= Math.exp(Math.log(uniform()) / size);
+            double gap = Math.floor(Math.log(uniform()) / Math.log1p(-weight));
+            skip = gap < Long.MAX_VALUE ? (long)gap : Long.MAX_VALUE;
+        }
+
+        private void offer(T item) {
+            if (size == 0)
+                return;
+            if (items.size() < size) {
+                items.add(item);
+                if (items.size() == size) {
+                    weight = 1;
+                    nextSkip();
+                }
+            }
+            else if (skip > 0)
+                skip--;
+            else {
+                items.set(random.nextInt(size), item);
+                nextSkip();
+            }
+        }
+
+        private List<T> getItems() {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package simpkins.query.iterator;
+
+import simpkins.query.RollingAggregator;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class RollingIterator<T, A> implements Iterator<A> {
+    private Iterator<T> source;
+    private RollingAggregator<T, A> aggregator;
+    // a ring buffer holding the current window so the oldest item can be handed back to the aggregator on removal.
+    private Object[] window;
+    private int start = 0;
+    private int count = 0;
+    private boolean isNextReady = false;
+
+    public RollingIterator(Iterator<T> source, int windowSize, RollingAggregator<T, A> aggregator) {
+        this.source = source;
+        this.aggregator = aggregator;
+        this.window = new Object[windowSize];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean hasNext() {
+        if (isNextReady)
+            return true;
+        if (count == window.length) {
+            if (!source.hasNext())
+                return false;
+            T next = source.next();
+            aggregator.remove((T)window[start]);
+            window[start] = next;
+            start = (start + 1) % window.length;
+            aggregator.add(next);
+            return isNextReady = true;
+        }
+        while (count < window.length && source.hasNext()) {
+            T next = source.next();
+            window[count++] = next;
+            aggregator.add(next);
+        }
+        return isNextReady = count == window.length;
+    }
+
+    @Override
+    public A next() {
+        if (!isNextReady && !hasNext())
+            throw new NoSuchElementException();
+        isNextReady = false;
+        return aggregator.get();
+    }
+}
@@ -3,15 +3,22 @@ package simpkins.query.iterator;
 import java.util.Iterator;
 import java.util.function.Function;
 
-public class SelectIterator<T, S> implements Iterator<S> {
+public class SelectIterator<T, S> implements BatchIterator<S> {
     private Iterator<T> source;
     private Function<T, S> selector;
+    private BatchIterator<T> batchSource = null;
 
     public SelectIterator(Iterator<T> source, Function<T, S> selector) {
         this.source = source;
         this.selector = selector;
     }
 
+    private BatchIterator<T> getBatchSource() {
+        if (batchSource == null)
+            batchSource = BatchIterator.of(source);
+        return batchSource;
+    }
+
     @Override
     public boolean hasNext() {
         return source.hasNext();
@@ -21,5 +28,14 @@ public class SelectIterator<T, S> implements Iterator<S> {
     public S next() {
         return selector.apply(source.next());
     }
-}
 
+    // the projections overwrite the source items in place.
+    @Override
+    @SuppressWarnings("unchecked")
+    public int fill(Object[] buffer) {
+        int count = getBatchSource().fill(buffer);
+        for (int i = 0; i < count; i++)
+            buffer[i] = selector.apply((T)buffer[i]);
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package simpkins.query.iterator;
+
+import java.util.*;
+import java.util.function.Function;
+
+public class StarJoinIterator<T, S> implements Iterator<S> {
+    private Iterator<T> source;
+    private List<? extends Iterable<?>> dimensions;
+    private List<? extends Function<T, ?>> sourceKeys;
+    private List<? extends Function<Object, ?>> dimensionKeys;
+    private Function<Object[], S> joiner;
+    private List<Map<Object, List<Object>>> tables = null;
+    // the source item followed by the current match from each dimension, reused for every result.
+    private Object[] row;
+    private List<Object>[] matches;
+    private int[] positions;
+    private boolean isRowReady = false;
+    private boolean isNextReady = false;
+    private S next = null;
+
+    public StarJoinIterator(Iterator<T> source, List<? extends Iterable<?>> dimensions, List<? extends Function<T, ?>> sourceKeys, List<? extends Function<Object, ?>> dimensionKeys, Function<Object[], S> joiner) {
+        this.source = source;
+        this.dimensions = dimensions;
+        this.sourceKeys = sourceKeys;
+        this.dimensionKeys = dimensionKeys;
+        this.joiner = joiner;
+        this.row = new Object[dimensions.size() + 1];
+        @SuppressWarnings("unchecked")
+        List<Object>[] matches = (List<Object>[])new List<?>[dimensions.size()];
+        this.matches = matches;
+        this.positions = new int[dimensions.size()];
+    }
+
+    private List<Map<Object, List<Object>>> getTables() {
+        if (tables == null) {
+            tables = new ArrayList<>(dimensions.size());
+            for (int d = 0; d < dimensions.size(); d++) {
+                Map<Object, List<Object>> table = new HashMap<>();
+                Function<Object, ?> key = dimensionKeys.get(d);
+                for (Object item : dimensions.get(d))
+                    table.computeIfAbsent(key.apply(item), k -> new ArrayList<>(1)).add(item);
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    // Finds the matches of the source item in every dimension.  Returns false at the first dimension without any.
+    private boolean probe(T item) {
+        List<Map<Object, List<Object>>> tables = getTables();
+        for (int d = 0; d < matches.length; d++) {
+            List<Object> bucket = tables.get(d).get(sourceKeys.get(d).apply(item));
+            if (bucket == null)
+                return false;
+            matches[d] = bucket;
+            positions[d] = 0;
+            row[d + 1] = bucket.get(0);
+        }
+        row[0] = item;
+        return true;
+    }
+
+    // Moves the row on to the next combination of matches, like an odometer.  Returns false once all are used.
+    private boolean advance() {
+        for (int d = matches.length - 1; d >= 0; d--) {
+            if (++positions[d] < matches[d].size()) {
+                row[d + 1] = matches[d].get(positions[d]);
+                return true;
+            }
+            positions[d] = 0;
+            row[d + 1] = matches[d].get(0);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (isNextReady)
+            return true;
+        if (isRowReady && advance()) {
+            next = joiner.apply(row);
+            return isNextReady = true;
+        }
+        isRowReady = false;
+        while (source.hasNext()) {
+            if (probe(source.next())) {
+                isRowReady = true;
+                next = joiner.apply(row);
+                return isNextReady = true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public S next() {
+        if (!isNextReady && !hasNext())
+            throw new NoSuchElementException();
+        isNextReady = false;
+        return next;
+    }
+}
@@ -0,0 +1,82 @@
+package simpkins.query.iterator;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+public class TimeWindowIterator<T, A, R> implements Iterator<R> {
+    private Iterator<T> source;
+    private ToLongFunction<T> timestampSelector;
+    private long size;
+    private long slide;
+    private long allowedLateness;
+    private Function<Long, A> seed;
+    private BiFunction<A, T, A> aggregation;
+    private BiFunction<Long, A, R> resultSelector;
+    // only windows that are still open are kept, ordered by start so they close in order.
+    private TreeMap<Long, A> openWindows = new TreeMap<>();
+    private Deque<R> closedWindows = new ArrayDeque<>();
+    private boolean hasWatermark = false;
+    private long watermark;
+
+    public TimeWindowIterator(Iterator<T> source, ToLongFunction<T> timestampSelector, long size, long slide,
+                              long allowedLateness, Function<Long, A> seed, BiFunction<A, T, A> aggregation,
+                              BiFunction<Long, A, R> resultSelector) {
+        this.source = source;
+        this.timestampSelector = timestampSelector;
+        this.size = size;
+        this.slide = slide;
+        this.allowedLateness = allowedLateness;
+        this.seed = seed;
+        this.aggregation = aggregation;
+        this.resultSelector = resultSelector;
+    }
+
+    // a window is open until the watermark reaches its end.
+    private boolean isOpen(long start) {
+        return !hasWatermark || start + size > watermark;
+    }
+
+    private void accept(T item) {
+        long timestamp = timestampSelector.applyAsLong(item);
+        // walk back from the latest window start at or before the timestamp through every window that contains it.
+        // items that only fall in windows that have already closed are too late and are dropped.
+        long latestStart = timestamp - Math.floorMod(timestamp, slide);
+        for (long start = latestStart; start + size > timestamp; start -= slide) {
+            if (!isOpen(start))
+                break;
+            A aggregate = openWindows.containsKey(start) ? openWindows.get(start) : seed.apply(start);
+            openWindows.put(start, aggregation.apply(aggregate, item));
+        }
+
+        long itemWatermark = timestamp - allowedLateness;
+        if (!hasWatermark || itemWatermark > watermark) {
+            watermark = itemWatermark;
+            hasWatermark = true;
+        }
+        while (!openWindows.isEmpty() && !isOpen(openWindows.firstKey()))
+            close(openWindows.pollFirstEntry());
+    }
+
+    private void close(Map.Entry<Long, A> window) {
+        closedWindows.add(resultSelector.apply(window.getKey(), window.getValue()));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (closedWindows.isEmpty() && source.hasNext())
+            accept(source.next());
+        // once the source runs out every remaining window is complete.
+        while (closedWindows.isEmpty() && !openWindows.isEmpty())
+            close(openWindows.pollFirstEntry());
+        return !closedWindows.isEmpty();
+    }
+
+    @Override
+    public R next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return closedWindows.poll();
+    }
+}
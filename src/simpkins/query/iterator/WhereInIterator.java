@@ -1,11 +1,10 @@
 package simpkins.query.iterator;
 
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class WhereInIterator<T, S> implements Iterator<T> {
     private Iterator<T> source;
@@ -13,7 +12,9 @@ public class WhereInIterator<T, S> implements Iterator<T> {
     private Function<T, S> selector;
     private BiPredicate<T, T> matcher;
     private boolean isInclusive;
-    private Set<S> containerSet = null;
+    private KeyTable containerKeys = null;
+    // set when the container holds another type, whose keys are projected by their own selector.
+    private Supplier<KeyTable> containerKeysBuilder = null;
     private boolean isNextReady = false;
     private T next = null;
 
@@ -31,13 +32,29 @@ public class WhereInIterator<T, S> implements Iterator<T> {
         this.isInclusive = isInclusive;
     }
 
-    private Set<S> getContainerSet() {
-        if (containerSet == null) {
-            containerSet = new HashSet<>();
+    // Matches source items by their selector projection against the containerSelector projections of a container of
+    // another type, so a semi-join or anti-join needs no projection of the container first.
+    public <R> WhereInIterator(Iterator<T> source, Iterable<R> container, Function<T, S> selector, Function<R, S> containerSelector, boolean isInclusive) {
+        this.source = source;
+        this.selector = selector;
+        this.isInclusive = isInclusive;
+        this.containerKeysBuilder = () -> {
+            KeyTable keys = new KeyTable();
+            for (R item : container)
+                keys.add(containerSelector.apply(item));
+            return keys;
+        };
+    }
+
+    private KeyTable getContainerKeys() {
+        if (containerKeys == null && containerKeysBuilder != null)
+            containerKeys = containerKeysBuilder.get();
+        if (containerKeys == null) {
+            containerKeys = new KeyTable();
             for (T item : container)
-                containerSet.add(selector.apply(item));
+                containerKeys.add(selector.apply(item));
         }
-        return containerSet;
+        return containerKeys;
     }
 
     @Override
@@ -50,7 +67,7 @@ public class WhereInIterator<T, S> implements Iterator<T> {
         while (source.hasNext()) {
             next = source.next();
             if (selector != null) {
-                if (getContainerSet().contains(selector.apply(next)) == isInclusive)
+                if (getContainerKeys().contains(selector.apply(next)) == isInclusive)
                     return isNextReady = true;
             }
             else if (isInclusive) {
@@ -4,17 +4,24 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.function.Predicate;
 
-public class WhereIterator<T> implements Iterator<T> {
+public class WhereIterator<T> implements BatchIterator<T> {
     private Iterator<T> source;
     private Predicate<T> condition;
     private boolean isNextReady = false;
     private T next = null;
+    private BatchIterator<T> batchSource = null;
 
     public WhereIterator(Iterator<T> source, Predicate<T> condition) {
         this.source = source;
         this.condition = condition;
     }
 
+    private BatchIterator<T> getBatchSource() {
+        if (batchSource == null)
+            batchSource = BatchIterator.of(source);
+        return batchSource;
+    }
+
     @Override
     public boolean hasNext() {
         if (isNextReady)
@@ -36,4 +43,28 @@ public class WhereIterator<T> implements Iterator<T> {
         isNextReady = false;
         return next;
     }
+
+    // matching items are compacted to the front of the buffer.  A source block with no matches is skipped so that 0
+    // is only returned once the source is exhausted.
+    @Override
+    @SuppressWarnings("unchecked")
+    public int fill(Object[] buffer) {
+        if (isNextReady) {
+            isNextReady = false;
+            buffer[0] = next;
+            return 1;
+        }
+        int count;
+        while ((count = getBatchSource().fill(buffer)) > 0) {
+            int matches = 0;
+            for (int i = 0; i < count; i++) {
+                T item = (T)buffer[i];
+                if (condition.test(item))
+                    buffer[matches++] = item;
+            }
+            if (matches > 0)
+                return matches;
+        }
+        return 0;
+    }
 }
@@ -0,0 +1,100 @@
+package simpkins.query.iterator;
+
+import simpkins.query.QueryList;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+public class WindowIterator<T, L extends List<T>> implements BatchIterator<L> {
+    private Iterator<T> source;
+    private int size;
+    private int step;
+    private boolean isPartialIncluded;
+    private boolean isReusingBuffer;
+    // a ring buffer holding the current window, preallocated to the window size.
+    private Object[] window;
+    private int start = 0;
+    private int count = 0;
+    private boolean isStarted = false;
+    private boolean isDone = false;
+    private boolean isNextReady = false;
+    private WindowView view = null;
+
+    public WindowIterator(Iterator<T> source, int size, int step, boolean isPartialIncluded, boolean isReusingBuffer) {
+        this.source = source;
+        this.size = size;
+        this.step = step;
+        this.isPartialIncluded = isPartialIncluded;
+        this.isReusingBuffer = isReusingBuffer;
+        this.window = new Object[size];
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (isNextReady)
+            return true;
+        if (isDone)
+            return false;
+
+        // slide forward by the step, dropping what was already buffered and then skipping the source for the rest.
+        int dropping = isStarted ? step : 0;
+        int dropped = Math.min(dropping, count);
+        for (int i = 0; i < dropped; i++)
+            window[(start + i) % size] = null;
+        start = (start + dropped) % size;
+        count -= dropped;
+        for (int i = dropped; i < dropping && source.hasNext(); i++)
+            source.next();
+        isStarted = true;
+
+        while (count < size && source.hasNext())
+            window[(start + count++) % size] = source.next();
+
+        if (count == size || (isPartialIncluded && count > 0))
+            return isNextReady = true;
+        isDone = true;
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public L next() {
+        if (!isNextReady && !hasNext())
+            throw new NoSuchElementException();
+        isNextReady = false;
+        if (isReusingBuffer) {
+            if (view == null)
+                view = new WindowView();
+            return (L)view;
+        }
+        return (L)new QueryList<T>(new WindowView());
+    }
+
+    // a reused view is only valid until the next window is requested, so it must be handed out one at a time.
+    @Override
+    public int fill(Object[] buffer) {
+        int filled = 0;
+        while (filled < (isReusingBuffer ? 1 : buffer.length) && hasNext())
+            buffer[filled++] = next();
+        return filled;
+    }
+
+    // A read-only view of the current window.  Copying it into a QueryList sizes the list exactly.
+    private class WindowView extends AbstractList<T> implements RandomAccess {
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= count)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            return (T)window[(start + index) % size];
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}